@@ -5,18 +5,33 @@
 package com.palantir.aip.processing;
 
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.SettableFuture;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
 import io.grpc.stub.StreamObserver;
 import java.util.function.BiConsumer;
 
 public final class GrpcCalls {
     private GrpcCalls() {}
 
+    /** Starts a unary call. Cancelling the returned future, for example when it times out, cancels the call. */
     public static <RequestT, ResponseT> ListenableFuture<ResponseT> call(
             BiConsumer<RequestT, StreamObserver<ResponseT>> stubCall, RequestT request) {
         SettableFuture<ResponseT> response = SettableFuture.create();
 
-        stubCall.accept(request, new StreamObserver<>() {
+        stubCall.accept(request, new ClientResponseObserver<RequestT, ResponseT>() {
+            @Override
+            public void beforeStart(ClientCallStreamObserver<RequestT> call) {
+                response.addListener(
+                        () -> {
+                            if (response.isCancelled()) {
+                                call.cancel("Cancelled by the orchestrator", null);
+                            }
+                        },
+                        MoreExecutors.directExecutor());
+            }
+
             @Override
             public void onNext(ResponseT value) {
                 response.set(value);
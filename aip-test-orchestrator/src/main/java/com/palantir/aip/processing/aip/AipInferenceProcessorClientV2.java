@@ -51,11 +51,18 @@ public final class AipInferenceProcessorClientV2 {
     }
 
     public ListenableFuture<InferenceResponse> infer(VideoFrame videoFrame) {
-        ProcessorV2Protos.InferenceRequest request = ProcessorV2Protos.InferenceRequest.newBuilder()
+        return infer(buildRequest(videoFrame));
+    }
+
+    public ListenableFuture<InferenceResponse> infer(ProcessorV2Protos.InferenceRequest request) {
+        return GrpcCalls.call(this.stub::infer, request);
+    }
+
+    public ProcessorV2Protos.InferenceRequest buildRequest(VideoFrame videoFrame) {
+        return ProcessorV2Protos.InferenceRequest.newBuilder()
                 .setHeader(getHeader(videoFrame))
                 .setFrame(getFrameMessage(videoFrame))
                 .build();
-        return GrpcCalls.call(this.stub::infer, request);
     }
 
     private void handleConfigurationResponse(ConfigProtos.ConfigurationResponse response) {
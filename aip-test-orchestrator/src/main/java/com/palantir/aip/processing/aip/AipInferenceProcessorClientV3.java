@@ -2,6 +2,7 @@ package com.palantir.aip.processing.aip;
 
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.SettableFuture;
 import com.palantir.aip.proto.configuration.ConfigProtos;
 import com.palantir.aip.proto.configuration.ConfigurationServiceGrpc;
@@ -15,6 +16,8 @@ import io.grpc.stub.StreamObserver;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class AipInferenceProcessorClientV3 {
     private final ManagedChannel channel;
@@ -22,8 +25,11 @@ public class AipInferenceProcessorClientV3 {
 
     private ProcessingServiceGrpc.ProcessingServiceStub stub;
     private PluginTypes.ImageFormat imageFormat;
-    private Map<Long, SettableFuture<ProcessResponse>> futures = new ConcurrentHashMap<>();
+    private final Map<Long, SettableFuture<ProcessResponse>> futures = new ConcurrentHashMap<>();
 
+    // Guards the request stream. Not a monitor: writing to the stream can block on flow control, and a virtual thread
+    // blocked inside a monitor pins its carrier.
+    private final Lock streamLock = new ReentrantLock();
     private StreamObserver<ProcessRequest> requestObserver;
 
     private boolean closed = false;
@@ -59,32 +65,54 @@ public class AipInferenceProcessorClientV3 {
     }
 
     public ListenableFuture<ProcessResponse> process(ProcessRequest request) {
-        if (closed) {
-            return Futures.immediateFailedFuture(disconnectedException());
-        }
+        SettableFuture<ProcessResponse> resultFuture = SettableFuture.create();
 
-        if (requestObserver == null) {
-            connect();
-        }
+        // StreamObserver is not thread-safe, so concurrent callers are serialized on the stream write only.
+        streamLock.lock();
+        try {
+            if (closed) {
+                return Futures.immediateFailedFuture(disconnectedException());
+            }
 
-        SettableFuture<ProcessResponse> resultFuture = SettableFuture.create();
-        futures.put(request.getRequestId(), resultFuture);
+            if (requestObserver == null) {
+                connect();
+            }
 
-        requestObserver.onNext(request);
+            futures.put(request.getRequestId(), resultFuture);
+            requestObserver.onNext(request);
+        } finally {
+            streamLock.unlock();
+        }
 
+        // A request the caller gave up on, for example on timeout, must not stay in the map until its response.
+        resultFuture.addListener(
+                () -> {
+                    if (resultFuture.isCancelled()) {
+                        futures.remove(request.getRequestId(), resultFuture);
+                    }
+                },
+                MoreExecutors.directExecutor());
         return resultFuture;
     }
 
     public void connect() {
-        requestObserver = stub.process(new StreamObserver<>() {
+        streamLock.lock();
+        try {
+            requestObserver = stub.process(responseObserver());
+        } finally {
+            streamLock.unlock();
+        }
+    }
+
+    private StreamObserver<ProcessResponse> responseObserver() {
+        return new StreamObserver<>() {
             @Override
             public void onNext(ProcessResponse value) {
-                Long requestId = value.getRequestId();
-                if (futures.containsKey(requestId)) {
-                    futures.get(requestId).set(value);
-                    futures.remove(requestId);
-                } else if (requestId != 0) {
-                    onError(new RuntimeException("Unknown response id received from processor: " + requestId));
+                SettableFuture<ProcessResponse> future = futures.remove(value.getRequestId());
+                // A late response to a request that timed out has nobody waiting for it, and must not end the stream
+                // that the other requests are still using.
+                if (future != null) {
+                    future.set(value);
                 }
             }
 
@@ -98,18 +126,25 @@ public class AipInferenceProcessorClientV3 {
             public void onCompleted() {
                 close();
             }
-        });
+        };
     }
 
-    public synchronized void close() {
-        if (closed) {
-            return;
-        }
+    public void close() {
+        streamLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
 
-        closed = true;
-        requestObserver.onCompleted();
-        futures.values().forEach(future -> future.setException(disconnectedException()));
-        futures.clear();
+            closed = true;
+            if (requestObserver != null) {
+                requestObserver.onCompleted();
+            }
+            futures.values().forEach(future -> future.setException(disconnectedException()));
+            futures.clear();
+        } finally {
+            streamLock.unlock();
+        }
     }
 
     private void handleConfigurationResponse(ConfigProtos.ConfigurationResponse response) {
@@ -0,0 +1,90 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.aip;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.palantir.aip.processing.engine.ProcessorClient;
+import com.palantir.aip.processing.engine.Request;
+import com.palantir.aip.processing.engine.RequestKind;
+import com.palantir.aip.processing.replay.RecordType;
+import com.palantir.aip.processing.replay.RecordedRequest;
+import com.palantir.aip.processing.util.Converters;
+import com.palantir.aip.proto.processor.v2.ProcessorV2Protos.InferenceRequest;
+import com.palantir.aip.proto.processor.v3.ProcessorV3Protos;
+import com.palantir.aip.proto.types.PluginTypes;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Exposes a configured {@link AipInferenceProcessorClientV2} to the load engine. */
+public final class ProcessorClientV2Adapter implements ProcessorClient {
+    private final AipInferenceProcessorClientV2 processor;
+    private final PluginTypes.ImageFormat imageFormat;
+    private final AtomicLong frameIds = new AtomicLong();
+
+    public ProcessorClientV2Adapter(AipInferenceProcessorClientV2 processor) {
+        this.processor = processor;
+        this.imageFormat = Converters.toV3(processor.getImageFormat());
+    }
+
+    @Override
+    public PluginTypes.ImageFormat imageFormat() {
+        return imageFormat;
+    }
+
+    @Override
+    public boolean supportsRawImagery() {
+        return false;
+    }
+
+    @Override
+    public boolean supports(RequestKind kind) {
+        return kind == RequestKind.VIDEO;
+    }
+
+    @Override
+    public void start() {}
+
+    @Override
+    public Request video(long streamId, ProcessorV3Protos.VideoRequest video) {
+        long frameId = frameIds.getAndIncrement();
+        InferenceRequest request =
+                processor.buildRequest(Converters.toVideoFrame(streamId, frameId, video, imageFormat));
+        return new Request(frameId, streamId, RequestKind.VIDEO, request);
+    }
+
+    @Override
+    public Request imagery(long streamId, ProcessorV3Protos.ImageryRequest imagery) {
+        throw new IllegalStateException("V2 processors only accept video frames");
+    }
+
+    @Override
+    public Request fromRecording(RecordedRequest recorded) {
+        if (recorded.type() != RecordType.V2_INFERENCE_REQUEST) {
+            throw new IllegalArgumentException(
+                    "Cannot replay " + recorded.type() + " frames against a V2 processor");
+        }
+        try {
+            InferenceRequest request = InferenceRequest.parser().parseFrom(recorded.payload());
+            return new Request(
+                    request.getHeader().getIdentifier().getFrameId(),
+                    request.getHeader().getIdentifier().getStreamId(),
+                    RequestKind.VIDEO,
+                    request);
+        } catch (InvalidProtocolBufferException e) {
+            throw new RuntimeException("Malformed InferenceRequest in request log", e);
+        }
+    }
+
+    @Override
+    public ListenableFuture<? extends Message> send(Request request) {
+        return processor.infer((InferenceRequest) request.message());
+    }
+
+    @Override
+    public void close() {
+        processor.closeChannel();
+    }
+}
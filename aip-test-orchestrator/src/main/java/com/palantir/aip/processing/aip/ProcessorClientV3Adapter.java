@@ -0,0 +1,108 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.aip;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.palantir.aip.processing.engine.ProcessorClient;
+import com.palantir.aip.processing.engine.Request;
+import com.palantir.aip.processing.engine.RequestKind;
+import com.palantir.aip.processing.replay.RecordType;
+import com.palantir.aip.processing.replay.RecordedRequest;
+import com.palantir.aip.proto.processor.v3.ProcessorV3Protos;
+import com.palantir.aip.proto.processor.v3.ProcessorV3Protos.ProcessRequest;
+import com.palantir.aip.proto.types.PluginTypes;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Exposes a configured {@link AipInferenceProcessorClientV3} to the load engine. */
+public final class ProcessorClientV3Adapter implements ProcessorClient {
+    private static final long STARTUP_REQUEST_ID = 0;
+
+    private final AipInferenceProcessorClientV3 processor;
+    private final AtomicLong requestIds = new AtomicLong(STARTUP_REQUEST_ID + 1);
+
+    public ProcessorClientV3Adapter(AipInferenceProcessorClientV3 processor) {
+        this.processor = processor;
+    }
+
+    @Override
+    public PluginTypes.ImageFormat imageFormat() {
+        return processor.getImageFormat();
+    }
+
+    @Override
+    public boolean supportsRawImagery() {
+        return processor.getSupportsRawImagery();
+    }
+
+    @Override
+    public boolean supports(RequestKind kind) {
+        return true;
+    }
+
+    @Override
+    public void start() {
+        try {
+            processor
+                    .process(ProcessRequest.newBuilder()
+                            .setRequestId(STARTUP_REQUEST_ID)
+                            .setStartup(ProcessorV3Protos.StartupRequest.getDefaultInstance())
+                            .build())
+                    .get();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Request video(long streamId, ProcessorV3Protos.VideoRequest video) {
+        long requestId = requestIds.getAndIncrement();
+        return new Request(
+                requestId,
+                streamId,
+                RequestKind.VIDEO,
+                ProcessRequest.newBuilder().setRequestId(requestId).setVideo(video).build());
+    }
+
+    @Override
+    public Request imagery(long streamId, ProcessorV3Protos.ImageryRequest imagery) {
+        long requestId = requestIds.getAndIncrement();
+        return new Request(
+                requestId,
+                streamId,
+                RequestKind.IMAGERY,
+                ProcessRequest.newBuilder().setRequestId(requestId).setImagery(imagery).build());
+    }
+
+    @Override
+    public Request fromRecording(RecordedRequest recorded) {
+        if (recorded.type() != RecordType.V3_PROCESS_REQUEST) {
+            throw new IllegalArgumentException(
+                    "Cannot replay " + recorded.type() + " frames against a V3 processor");
+        }
+        try {
+            ProcessRequest request = ProcessRequest.parser().parseFrom(recorded.payload());
+            return new Request(
+                    request.getRequestId(),
+                    0,
+                    request.hasImagery() ? RequestKind.IMAGERY : RequestKind.VIDEO,
+                    request);
+        } catch (InvalidProtocolBufferException e) {
+            throw new RuntimeException("Malformed ProcessRequest in request log", e);
+        }
+    }
+
+    @Override
+    public ListenableFuture<? extends Message> send(Request request) {
+        return processor.process((ProcessRequest) request.message());
+    }
+
+    @Override
+    public void close() {
+        processor.close();
+        processor.closeChannel();
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.analytics;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.EnumValueDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import com.palantir.aip.proto.processor.v2.ProcessorV2Protos;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Finds the detections in a processor response. V2 {@code InferenceResponse}s are read through their typed accessors.
+ * The V3 API has no single typed detection list, so in {@code ProcessResponse}s every element of a repeated message
+ * field whose name mentions an inference or detection is a detection. A detection's confidence is the first
+ * floating-point field named like a score, and its class the first string or enum field named like a label. Field
+ * lookups are worked out once per message type.
+ *
+ * <p>A response type without a detection field, or a detection type without a confidence and label, throws an
+ * {@link IllegalStateException} instead of being profiled as empty, which would compare as free of drift.
+ */
+final class DetectionExtractor {
+    private static final ImmutableSet<String> LABEL_NAMES =
+            ImmutableSet.of("type", "label", "class", "class_name", "category", "classification");
+    private static final int MAX_DEPTH = 3;
+    private static final String UNLABELLED = "(unlabelled)";
+
+    private final Map<Descriptor, List<FieldDescriptor>> routes = new ConcurrentHashMap<>();
+    private final Map<Descriptor, DetectionFields> detectionFields = new ConcurrentHashMap<>();
+
+    /** Records every detection in {@code response}, then the frame itself, to {@code profile}. */
+    void extract(Message response, ResultProfile profile) {
+        if (response instanceof ProcessorV2Protos.InferenceResponse) {
+            List<ProcessorV2Protos.Inference> inferences =
+                    ((ProcessorV2Protos.InferenceResponse) response).getInferences().getInferenceList();
+            for (ProcessorV2Protos.Inference inference : inferences) {
+                record(inference, profile);
+            }
+            profile.recordFrame(inferences.size());
+            return;
+        }
+        Descriptor type = response.getDescriptorForType();
+        if (routes(type).isEmpty()) {
+            throw new IllegalStateException("cannot find detections in " + type.getFullName() + " responses: none of "
+                    + "its repeated message fields is named like an inference or detection");
+        }
+        profile.recordFrame(visit(response, profile));
+    }
+
+    private void record(Message detection, ResultProfile profile) {
+        DetectionFields fields = detectionFields.computeIfAbsent(detection.getDescriptorForType(), DetectionFields::of);
+        profile.recordDetection(fields.confidence(detection), fields.label(detection));
+    }
+
+    private int visit(Message message, ResultProfile profile) {
+        int detections = 0;
+        for (FieldDescriptor field : routes(message.getDescriptorForType())) {
+            if (isDetectionField(field)) {
+                int count = message.getRepeatedFieldCount(field);
+                for (int i = 0; i < count; i++) {
+                    record((Message) message.getRepeatedField(field, i), profile);
+                }
+                detections += count;
+            } else if (field.isRepeated()) {
+                int count = message.getRepeatedFieldCount(field);
+                for (int i = 0; i < count; i++) {
+                    detections += visit((Message) message.getRepeatedField(field, i), profile);
+                }
+            } else if (message.hasField(field)) {
+                detections += visit((Message) message.getField(field), profile);
+            }
+        }
+        return detections;
+    }
+
+    /** The message fields of {@code type} that are, or lead to, detection fields. */
+    private List<FieldDescriptor> routes(Descriptor type) {
+        List<FieldDescriptor> cached = routes.get(type);
+        if (cached == null) {
+            cached = findRoutes(type, new HashSet<>());
+            routes.put(type, cached);
+        }
+        return cached;
+    }
+
+    private static List<FieldDescriptor> findRoutes(Descriptor type, Set<Descriptor> visiting) {
+        if (!visiting.add(type)) {
+            return ImmutableList.of();
+        }
+        ImmutableList.Builder<FieldDescriptor> found = ImmutableList.builder();
+        for (FieldDescriptor field : type.getFields()) {
+            if (field.getJavaType() == FieldDescriptor.JavaType.MESSAGE
+                    && (isDetectionField(field) || !findRoutes(field.getMessageType(), visiting).isEmpty())) {
+                found.add(field);
+            }
+        }
+        visiting.remove(type);
+        return found.build();
+    }
+
+    private static boolean isDetectionField(FieldDescriptor field) {
+        String name = field.getName().toLowerCase(Locale.ROOT);
+        return field.isRepeated()
+                && field.getJavaType() == FieldDescriptor.JavaType.MESSAGE
+                && (name.contains("inference") || name.contains("detection"));
+    }
+
+    private static final class DetectionFields {
+        private final List<FieldDescriptor> confidence;
+        private final List<FieldDescriptor> label;
+
+        private DetectionFields(List<FieldDescriptor> confidence, List<FieldDescriptor> label) {
+            this.confidence = confidence;
+            this.label = label;
+        }
+
+        static DetectionFields of(Descriptor type) {
+            return new DetectionFields(
+                    findPath(type, DetectionFields::isConfidence, 0)
+                            .orElseThrow(() -> unresolved(type, "confidence or score")),
+                    findPath(type, DetectionFields::isLabel, 0)
+                            .orElseThrow(() -> unresolved(type, "label (one of " + LABEL_NAMES + ")")));
+        }
+
+        private static IllegalStateException unresolved(Descriptor type, String what) {
+            List<String> fields = new ArrayList<>();
+            for (FieldDescriptor field : type.getFields()) {
+                fields.add(field.getName());
+            }
+            return new IllegalStateException(
+                    "cannot find the " + what + " field of " + type.getFullName() + " detections in " + fields);
+        }
+
+        double confidence(Message detection) {
+            return ((Number) get(detection, confidence)).doubleValue();
+        }
+
+        String label(Message detection) {
+            Object value = get(detection, label);
+            String name =
+                    value instanceof EnumValueDescriptor ? ((EnumValueDescriptor) value).getName() : (String) value;
+            return name.isEmpty() ? UNLABELLED : name;
+        }
+
+        private static Object get(Message message, List<FieldDescriptor> path) {
+            Message current = message;
+            for (int i = 0; i < path.size() - 1; i++) {
+                current = (Message) current.getField(path.get(i));
+            }
+            return current.getField(path.get(path.size() - 1));
+        }
+
+        /** Finds the shallowest singular field matching {@code matches}, through singular message fields. */
+        private static Optional<List<FieldDescriptor>> findPath(
+                Descriptor type, Predicate<FieldDescriptor> matches, int depth) {
+            for (FieldDescriptor field : type.getFields()) {
+                if (!field.isRepeated() && matches.test(field)) {
+                    return Optional.of(ImmutableList.of(field));
+                }
+            }
+            if (depth == MAX_DEPTH) {
+                return Optional.empty();
+            }
+            for (FieldDescriptor field : type.getFields()) {
+                if (!field.isRepeated() && field.getJavaType() == FieldDescriptor.JavaType.MESSAGE) {
+                    Optional<List<FieldDescriptor>> nested = findPath(field.getMessageType(), matches, depth + 1);
+                    if (nested.isPresent()) {
+                        return Optional.of(ImmutableList.<FieldDescriptor>builder()
+                                .add(field)
+                                .addAll(nested.get())
+                                .build());
+                    }
+                }
+            }
+            return Optional.empty();
+        }
+
+        private static boolean isConfidence(FieldDescriptor field) {
+            String name = field.getName().toLowerCase(Locale.ROOT);
+            return (field.getJavaType() == FieldDescriptor.JavaType.FLOAT
+                            || field.getJavaType() == FieldDescriptor.JavaType.DOUBLE)
+                    && (name.contains("confidence") || name.contains("score"));
+        }
+
+        private static boolean isLabel(FieldDescriptor field) {
+            return (field.getJavaType() == FieldDescriptor.JavaType.STRING
+                            || field.getJavaType() == FieldDescriptor.JavaType.ENUM)
+                    && LABEL_NAMES.contains(field.getName().toLowerCase(Locale.ROOT));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.analytics;
+
+import com.google.protobuf.Message;
+import com.palantir.aip.processing.engine.LoadSink;
+import com.palantir.aip.processing.engine.Request;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Profiles the answers in every response and, given a golden profile from a trusted run, reports whether they drifted,
+ * for example because a processor tuned for throughput returns different detections under load.
+ */
+@SuppressWarnings("BanSystemOut")
+public final class ResultAnalyticsSink implements LoadSink {
+    private final DetectionExtractor extractor = new DetectionExtractor();
+    private final ResultProfile profile = new ResultProfile();
+    private final Optional<Path> goldenPath;
+    private final Optional<ResultProfile> golden;
+    private final Optional<Path> savePath;
+    private final double tolerance;
+    private final AtomicBoolean reported = new AtomicBoolean();
+    private final AtomicReference<IllegalStateException> failure = new AtomicReference<>();
+
+    /**
+     * Creates a sink that compares with the golden profile at {@code goldenPath}, if given, and saves its own profile
+     * to {@code savePath}, if given. Drift beyond {@code tolerance} in any distribution is flagged.
+     */
+    public ResultAnalyticsSink(Optional<Path> goldenPath, Optional<Path> savePath, double tolerance) {
+        this.goldenPath = goldenPath;
+        this.golden = goldenPath.map(ResultProfile::readFrom);
+        this.savePath = savePath;
+        this.tolerance = tolerance;
+    }
+
+    @Override
+    public void onResponse(Request request, Message response, long latencyNanos) {
+        if (failure.get() != null) {
+            return;
+        }
+        try {
+            extractor.extract(response, profile);
+        } catch (IllegalStateException e) {
+            if (failure.compareAndSet(null, e)) {
+                System.out.println("Orchestrator: result analytics failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Prints the report and saves the profile, unless that has already been done. Throws if the responses could not
+     * be profiled, rather than report an empty profile as free of drift.
+     */
+    public void report() {
+        if (!reported.compareAndSet(false, true)) {
+            return;
+        }
+        if (failure.get() != null) {
+            throw new IllegalStateException("could not profile results", failure.get());
+        }
+        if (profile.frames() == 0) {
+            System.out.println("Orchestrator: results: no responses to profile");
+            return;
+        }
+        System.out.println("Orchestrator: results: " + profile.summary());
+        golden.ifPresent(reference -> {
+            ResultDrift drift = profile.driftFrom(reference);
+            System.out.println("Orchestrator: drift from golden results " + goldenPath.get() + " ("
+                    + reference.frames() + " frames): " + drift + "; "
+                    + (drift.exceeds(tolerance) ? "DRIFTED beyond " : "within ") + "tolerance " + tolerance);
+        });
+        savePath.ifPresent(path -> {
+            profile.writeTo(path);
+            System.out.println("Orchestrator: saved result profile of " + profile.frames() + " frames to " + path);
+        });
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.analytics;
+
+/**
+ * How far the answers of a run moved from a golden profile. Every distance is between 0 (identical distributions)
+ * and 1 (no overlap).
+ */
+public final class ResultDrift {
+    private final double detectionsPerFrame;
+    private final double confidence;
+    private final double classes;
+    private final double meanDetectionsChange;
+
+    ResultDrift(double detectionsPerFrame, double confidence, double classes, double meanDetectionsChange) {
+        this.detectionsPerFrame = detectionsPerFrame;
+        this.confidence = confidence;
+        this.classes = classes;
+        this.meanDetectionsChange = meanDetectionsChange;
+    }
+
+    /** Whether any distance exceeds {@code tolerance}. */
+    public boolean exceeds(double tolerance) {
+        return detectionsPerFrame > tolerance || confidence > tolerance || classes > tolerance;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "detections per frame %.4f (total variation, mean %+.2f), confidence %.4f (Kolmogorov-Smirnov), "
+                        + "classes %.4f (total variation)",
+                detectionsPerFrame,
+                meanDetectionsChange,
+                confidence,
+                classes);
+    }
+}
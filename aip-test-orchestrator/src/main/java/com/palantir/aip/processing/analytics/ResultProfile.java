@@ -0,0 +1,273 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.analytics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size summary of the answers a processor returned: how many detections each frame had, how confident they
+ * were, and which classes they belonged to. Memory use does not grow with the number of frames, and a profile can
+ * be saved as the golden profile that later runs are compared against.
+ */
+public final class ResultProfile {
+    /** Frames with more detections than this share the last bucket. */
+    private static final int MAX_DETECTIONS = 255;
+    /** Confidence scores in [0, 1] are counted in this many equal bins. */
+    private static final int CONFIDENCE_BINS = 100;
+    private static final int CLASS_CAPACITY = 256;
+    private static final int MAGIC = 0x41495050; // "AIPP"
+    private static final int VERSION = 1;
+
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder detections = new LongAdder();
+    private final LongAdder unscored = new LongAdder();
+    private final AtomicLongArray detectionsPerFrame = new AtomicLongArray(MAX_DETECTIONS + 1);
+    private final AtomicLongArray confidences = new AtomicLongArray(CONFIDENCE_BINS);
+    private final SpaceSavingSketch classes;
+
+    public ResultProfile() {
+        this(new SpaceSavingSketch(CLASS_CAPACITY));
+    }
+
+    private ResultProfile(SpaceSavingSketch classes) {
+        this.classes = classes;
+    }
+
+    void recordFrame(int frameDetections) {
+        frames.increment();
+        detections.add(frameDetections);
+        detectionsPerFrame.incrementAndGet(Math.min(frameDetections, MAX_DETECTIONS));
+    }
+
+    /** Records one detection; {@code confidence} is NaN if the detection has no score. */
+    void recordDetection(double confidence, String label) {
+        if (Double.isNaN(confidence)) {
+            unscored.increment();
+        } else {
+            int bin = (int) (Math.min(Math.max(confidence, 0), 1) * CONFIDENCE_BINS);
+            confidences.incrementAndGet(Math.min(bin, CONFIDENCE_BINS - 1));
+        }
+        classes.add(label);
+    }
+
+    public long frames() {
+        return frames.sum();
+    }
+
+    /** Returns a multi-line description of the profile. */
+    public String summary() {
+        long frameCount = frames.sum();
+        StringBuilder summary = new StringBuilder()
+                .append(frameCount)
+                .append(" frames, ")
+                .append(detections.sum())
+                .append(" detections\n  detections per frame: ")
+                .append(String.format(
+                        "p50 %d, p90 %d, p99 %d, max %d, mean %.2f",
+                        countPercentile(50),
+                        countPercentile(90),
+                        countPercentile(99),
+                        countPercentile(100),
+                        frameCount == 0 ? 0.0 : (double) detections.sum() / frameCount))
+                .append("\n  confidence: ");
+        long scored = sum(confidences);
+        if (scored == 0) {
+            summary.append("no scored detections");
+        } else {
+            summary.append(String.format(
+                    "p10 %.2f, p50 %.2f, p90 %.2f",
+                    confidencePercentile(10), confidencePercentile(50), confidencePercentile(90)));
+        }
+        if (unscored.sum() > 0) {
+            summary.append(" (").append(unscored.sum()).append(" detections without a score)");
+        }
+        summary.append("\n  classes:");
+        long total = classes.total();
+        classes.top(10).forEach((label, count) -> summary.append(' ')
+                .append(label)
+                .append(String.format(" %.1f%%", 100.0 * count / total))
+                .append(','));
+        if (total == 0) {
+            summary.append(" none");
+        } else {
+            summary.setLength(summary.length() - 1);
+        }
+        return summary.toString();
+    }
+
+    /** Compares the distributions of this profile with those of {@code golden}. */
+    public ResultDrift driftFrom(ResultProfile golden) {
+        return new ResultDrift(
+                totalVariation(detectionsPerFrame, golden.detectionsPerFrame),
+                kolmogorovSmirnov(confidences, golden.confidences),
+                classTotalVariation(classes, golden.classes),
+                meanDetections() - golden.meanDetections());
+    }
+
+    public void writeTo(Path path) {
+        try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(path))) {
+            DataOutput out = new DataOutputStream(stream);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(frames.sum());
+            out.writeLong(detections.sum());
+            out.writeLong(unscored.sum());
+            writeArray(out, detectionsPerFrame);
+            writeArray(out, confidences);
+            classes.writeTo(out);
+        } catch (IOException e) {
+            throw new RuntimeException("failed to write result profile to " + path, e);
+        }
+    }
+
+    public static ResultProfile readFrom(Path path) {
+        try (InputStream stream = new BufferedInputStream(Files.newInputStream(path))) {
+            DataInput in = new DataInputStream(stream);
+            if (in.readInt() != MAGIC) {
+                throw new IllegalArgumentException(path + " is not a result profile");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("unsupported result profile version " + version + " in " + path);
+            }
+            long frameCount = in.readLong();
+            long detectionCount = in.readLong();
+            long unscoredCount = in.readLong();
+            AtomicLongArray perFrame = readArray(in, MAX_DETECTIONS + 1);
+            AtomicLongArray confidenceBins = readArray(in, CONFIDENCE_BINS);
+            ResultProfile profile = new ResultProfile(SpaceSavingSketch.readFrom(in));
+            profile.frames.add(frameCount);
+            profile.detections.add(detectionCount);
+            profile.unscored.add(unscoredCount);
+            for (int i = 0; i < perFrame.length(); i++) {
+                profile.detectionsPerFrame.set(i, perFrame.get(i));
+            }
+            for (int i = 0; i < confidenceBins.length(); i++) {
+                profile.confidences.set(i, confidenceBins.get(i));
+            }
+            return profile;
+        } catch (IOException e) {
+            throw new RuntimeException("failed to read result profile from " + path, e);
+        }
+    }
+
+    private double meanDetections() {
+        long frameCount = frames.sum();
+        return frameCount == 0 ? 0 : (double) detections.sum() / frameCount;
+    }
+
+    private int countPercentile(double percentile) {
+        return percentileIndex(detectionsPerFrame, percentile);
+    }
+
+    private double confidencePercentile(double percentile) {
+        return (percentileIndex(confidences, percentile) + 0.5) / CONFIDENCE_BINS;
+    }
+
+    private static int percentileIndex(AtomicLongArray counts, double percentile) {
+        long total = sum(counts);
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank && seen > 0) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private static double totalVariation(AtomicLongArray counts, AtomicLongArray golden) {
+        double total = sum(counts);
+        double goldenTotal = sum(golden);
+        if (total == 0 || goldenTotal == 0) {
+            return total == goldenTotal ? 0 : 1;
+        }
+        double distance = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            distance += Math.abs(counts.get(i) / total - golden.get(i) / goldenTotal);
+        }
+        return distance / 2;
+    }
+
+    private static double kolmogorovSmirnov(AtomicLongArray counts, AtomicLongArray golden) {
+        double total = sum(counts);
+        double goldenTotal = sum(golden);
+        if (total == 0 || goldenTotal == 0) {
+            return total == goldenTotal ? 0 : 1;
+        }
+        double cumulative = 0;
+        double goldenCumulative = 0;
+        double distance = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            cumulative += counts.get(i) / total;
+            goldenCumulative += golden.get(i) / goldenTotal;
+            distance = Math.max(distance, Math.abs(cumulative - goldenCumulative));
+        }
+        return distance;
+    }
+
+    /** Total variation distance between the class shares; classes not tracked by either sketch count as one. */
+    private static double classTotalVariation(SpaceSavingSketch sketch, SpaceSavingSketch golden) {
+        double total = sketch.total();
+        double goldenTotal = golden.total();
+        if (total == 0 || goldenTotal == 0) {
+            return total == goldenTotal ? 0 : 1;
+        }
+        Map<String, Long> counts = sketch.top(CLASS_CAPACITY);
+        Map<String, Long> goldenCounts = golden.top(CLASS_CAPACITY);
+        Set<String> labels = new HashSet<>(counts.keySet());
+        labels.addAll(goldenCounts.keySet());
+        double distance = 0;
+        double share = 0;
+        double goldenShare = 0;
+        for (String label : labels) {
+            double p = counts.getOrDefault(label, 0L) / total;
+            double q = goldenCounts.getOrDefault(label, 0L) / goldenTotal;
+            distance += Math.abs(p - q);
+            share += p;
+            goldenShare += q;
+        }
+        distance += Math.abs(Math.max(1 - share, 0) - Math.max(1 - goldenShare, 0));
+        return Math.min(distance / 2, 1);
+    }
+
+    private static long sum(AtomicLongArray counts) {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    private static void writeArray(DataOutput out, AtomicLongArray counts) throws IOException {
+        for (int i = 0; i < counts.length(); i++) {
+            out.writeLong(counts.get(i));
+        }
+    }
+
+    private static AtomicLongArray readArray(DataInput in, int length) throws IOException {
+        AtomicLongArray counts = new AtomicLongArray(length);
+        for (int i = 0; i < length; i++) {
+            counts.set(i, in.readLong());
+        }
+        return counts;
+    }
+}
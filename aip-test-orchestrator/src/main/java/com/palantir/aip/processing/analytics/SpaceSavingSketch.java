@@ -0,0 +1,81 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.analytics;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counts the most frequent keys of an unbounded stream in bounded memory, using the Space-Saving algorithm. Keys are
+ * counted exactly while fewer than {@code capacity} distinct keys have been seen; beyond that, a new key replaces
+ * the least frequent one and inherits its count, so counts of rare keys may be overestimated.
+ */
+final class SpaceSavingSketch {
+    private final int capacity;
+    private final Map<String, Long> counts = new HashMap<>();
+    private long total = 0;
+
+    SpaceSavingSketch(int capacity) {
+        this.capacity = capacity;
+    }
+
+    synchronized void add(String key) {
+        total++;
+        Long count = counts.get(key);
+        if (count != null) {
+            counts.put(key, count + 1);
+            return;
+        }
+        if (counts.size() < capacity) {
+            counts.put(key, 1L);
+            return;
+        }
+        Map.Entry<String, Long> least = counts.entrySet().stream()
+                .min(Map.Entry.comparingByValue())
+                .orElseThrow();
+        counts.remove(least.getKey());
+        counts.put(key, least.getValue() + 1);
+    }
+
+    synchronized long total() {
+        return total;
+    }
+
+    /** Returns the {@code limit} most frequent keys and their counts, most frequent first. */
+    synchronized Map<String, Long> top(int limit) {
+        Map<String, Long> top = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .forEach(entry -> top.put(entry.getKey(), entry.getValue()));
+        return top;
+    }
+
+    synchronized void writeTo(DataOutput out) throws IOException {
+        out.writeInt(capacity);
+        out.writeLong(total);
+        out.writeInt(counts.size());
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+    }
+
+    static SpaceSavingSketch readFrom(DataInput in) throws IOException {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(in.readInt());
+        sketch.total = in.readLong();
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            sketch.counts.put(in.readUTF(), in.readLong());
+        }
+        return sketch;
+    }
+}
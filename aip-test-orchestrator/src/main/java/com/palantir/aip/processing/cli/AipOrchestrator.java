@@ -6,15 +6,42 @@ package com.palantir.aip.processing.cli;
 
 import com.google.common.net.HostAndPort;
 import com.palantir.aip.processing.aip.AipInferenceProcessorClientV3;
+import com.palantir.aip.processing.analytics.ResultAnalyticsSink;
+import com.palantir.aip.processing.control.AdaptiveRateController;
+import com.palantir.aip.processing.distributed.Coordinator;
+import com.palantir.aip.processing.distributed.CoordinatorClient;
+import com.palantir.aip.processing.distributed.WorkerAssignment;
+import com.palantir.aip.processing.distributed.WorkerReport;
+import com.palantir.aip.processing.engine.ArrivalProcess;
+import com.palantir.aip.processing.engine.ExecutionModel;
+import com.palantir.aip.processing.engine.FrameDropPolicy;
+import com.palantir.aip.processing.engine.LoggingSink;
+import com.palantir.aip.processing.engine.RequestKind;
+import com.palantir.aip.processing.orchestrators.MixedWorkload;
+import com.palantir.aip.processing.orchestrators.ProcessorOrchestrator;
 import com.palantir.aip.processing.orchestrators.V2ProcessorOrchestrator;
 import com.palantir.aip.processing.aip.AipInferenceProcessorClientV2;
 import com.palantir.aip.processing.orchestrators.V3ProcessorOrchestrator;
+import com.palantir.aip.processing.replay.ReplayTiming;
+import com.palantir.aip.processing.replay.RequestLogWriter;
+import com.palantir.aip.processing.stats.Durations;
+import com.palantir.aip.processing.stats.LiveVideoSink;
+import com.palantir.aip.processing.stats.MeasurementSink;
+import com.palantir.aip.processing.stats.PacingSink;
+import com.palantir.aip.processing.stats.Warmup;
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.net.URI;
 import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.*;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
 
 import picocli.CommandLine;
 
@@ -27,7 +54,10 @@ public final class AipOrchestrator implements Runnable {
     private static final CommandLine.Help.ColorScheme NO_COLORS =
             new CommandLine.Help.ColorScheme.Builder(CommandLine.Help.Ansi.OFF).build();
     private static final CommandLine COMMAND_LINE =
-            new CommandLine(new AipOrchestrator()).setUsageHelpAutoWidth(true).setColorScheme(NO_COLORS);
+            new CommandLine(new AipOrchestrator())
+                    .setUsageHelpAutoWidth(true)
+                    .setColorScheme(NO_COLORS)
+                    .setCaseInsensitiveEnumValuesAllowed(true);
 
     @CommandLine.Option(
             names = "--shared-images-dir",
@@ -54,6 +84,240 @@ public final class AipOrchestrator implements Runnable {
     )
     private String type;
 
+    @CommandLine.Option(
+            names = "--log-requests",
+            description = "Prints every request sent and every response received. All streams print through one "
+                    + "lock on standard out, so leave this off for load runs.")
+    private boolean logRequests;
+
+    @CommandLine.Option(
+            names = "--record",
+            description = "Records every request sent to the processor, with its send time, to this file.")
+    private Path recordLog;
+
+    @CommandLine.Option(
+            names = "--replay",
+            description = "Replays the requests in this file (written by --record) instead of generating frames.")
+    private Path replayLog;
+
+    @CommandLine.Option(
+            names = "--replay-timing",
+            description = "How to pace a replay. Valid options are: ORIGINAL (recorded inter-arrival times), "
+                    + "FAST (as fast as possible)",
+            defaultValue = "ORIGINAL")
+    private ReplayTiming replayTiming;
+
+    @CommandLine.Option(
+            names = "--replay-max-in-flight",
+            description = "The maximum number of replayed requests awaiting a response at any time.",
+            defaultValue = "1024")
+    private int replayMaxInFlight;
+
+    @CommandLine.Option(
+            names = "--warmup",
+            description = "Excludes the start of the run from statistics, either as a duration (e.g. 30s, 500ms) "
+                    + "or as a number of frames (e.g. 1000f).",
+            defaultValue = "0",
+            converter = WarmupConverter.class)
+    private Warmup warmup;
+
+    @CommandLine.Option(
+            names = "--measure",
+            description = "Length of the steady-state measurement window after the warm-up (e.g. 60s), after which "
+                    + "the run ends. Measures until interrupted if not set.",
+            defaultValue = "0",
+            converter = DurationConverter.class)
+    private long measureNanos;
+
+    @CommandLine.Option(
+            names = "--request-timeout",
+            description = "Fails requests that have not been answered within this duration (e.g. 5s), so that a "
+                    + "stalled processor shows up as timeouts instead of holding requests in flight forever. "
+                    + "Requests never time out if not set.",
+            defaultValue = "0",
+            converter = DurationConverter.class)
+    private long requestTimeoutNanos;
+
+    @CommandLine.Option(
+            names = "--streams",
+            description = "The number of concurrent streams that share the frame rate.",
+            defaultValue = "1")
+    private int streams;
+
+    @CommandLine.Option(
+            names = "--arrival",
+            description = "How generated frames are spread over time at the requested rate. Valid options are: "
+                    + "CONSTANT (evenly spaced), POISSON (exponentially distributed gaps), BURST (--burst-size "
+                    + "back-to-back frames, then an idle gap)",
+            defaultValue = "CONSTANT")
+    private ArrivalProcess arrival;
+
+    @CommandLine.Option(
+            names = "--burst-size",
+            description = "The number of frames per burst for --arrival BURST.",
+            defaultValue = "10")
+    private int burstSize;
+
+    @CommandLine.Option(
+            names = "--target-latency",
+            description = "Searches for the highest rate that keeps --target-percentile latency under this target "
+                    + "(e.g. 200ms), starting from --rate, and reports it.",
+            defaultValue = "0",
+            converter = DurationConverter.class)
+    private long targetLatencyNanos;
+
+    @CommandLine.Option(
+            names = "--target-percentile",
+            description = "The latency percentile that --target-latency applies to.",
+            defaultValue = "99")
+    private double targetPercentile;
+
+    @CommandLine.Option(
+            names = "--control-interval",
+            description = "How often the rate is adjusted when searching with --target-latency.",
+            defaultValue = "2s",
+            converter = DurationConverter.class)
+    private long controlIntervalNanos;
+
+    @CommandLine.Option(
+            names = "--max-outstanding-frames",
+            description = "Sends frames like a live video feed: each stream has at most this many frames awaiting a "
+                    + "response, and frames captured beyond that are handled by --drop-policy instead of queueing. "
+                    + "Reports drop rate, effective frame rate and frame staleness. Fixed-rate runs only: cannot be "
+                    + "combined with --replay, --mix or --target-latency.",
+            defaultValue = "0")
+    private int maxOutstandingFrames;
+
+    @CommandLine.Option(
+            names = "--drop-policy",
+            description = "What a live stream does with a frame captured while --max-outstanding-frames are "
+                    + "outstanding. Valid options are: DROP_NEWEST (drop it), REPLACE_WITH_LATEST (hold it for the "
+                    + "next free slot, replacing any older held frame), SKIP_TO_KEYFRAME (drop it and every frame "
+                    + "until the next keyframe)",
+            defaultValue = "DROP_NEWEST")
+    private FrameDropPolicy dropPolicy;
+
+    @CommandLine.Option(
+            names = "--keyframe-interval",
+            description = "The number of frames from one keyframe to the next, for SKIP_TO_KEYFRAME.",
+            defaultValue = "30")
+    private int keyframeInterval;
+
+    @CommandLine.Option(
+            names = "--mix",
+            description = "Interleaves several request kinds on one v3 processor, splitting --rate between them by "
+                    + "weight (e.g. VIDEO=9,IMAGERY=1). Latency is reported per kind.",
+            split = ",")
+    private Map<RequestKind, Double> mixWeights;
+
+    @CommandLine.Option(
+            names = "--mix-priority",
+            description = "The priority of each kind in --mix (e.g. VIDEO=1,IMAGERY=0). While --mix-max-in-flight "
+                    + "requests are outstanding, higher-priority kinds are sent first. Kinds default to 0.",
+            split = ",")
+    private Map<RequestKind, Integer> mixPriorities;
+
+    @CommandLine.Option(
+            names = "--mix-max-in-flight",
+            description = "The maximum number of --mix requests of any kind awaiting a response. Unlimited if not set.")
+    private Integer mixMaxInFlight;
+
+    @CommandLine.Option(
+            names = "--per-frame-files",
+            description = "Writes a separate image file for every generated frame and deletes it once the processor "
+                    + "has responded, instead of sending one shared image. Cannot be combined with --record.")
+    private boolean perFrameFiles;
+
+    @CommandLine.Option(
+            names = "--frame-store-quota",
+            description = "The most disk space used by --per-frame-files at once (e.g. 512m, 2g). Streams wait for "
+                    + "frames to be released while it is used up.",
+            defaultValue = "1g",
+            converter = ByteSizeConverter.class)
+    private long frameStoreQuotaBytes;
+
+    @CommandLine.Option(
+            names = "--frame-writers",
+            description = "The number of background threads writing --per-frame-files.",
+            defaultValue = "2")
+    private int frameWriters;
+
+    @CommandLine.Option(
+            names = "--execution-model",
+            description = "The threads that run stream senders and response handling. Valid options are: PLATFORM "
+                    + "(a platform thread per stream, responses handled on gRPC threads), VIRTUAL (a virtual thread "
+                    + "per stream and per response; requires Java 21)",
+            defaultValue = "PLATFORM")
+    private ExecutionModel executionModel;
+
+    @CommandLine.Option(
+            names = "--analyze-results",
+            description = "Profiles the detections in every response: detections per frame, confidence scores and "
+                    + "class counts, in constant memory.")
+    private boolean analyzeResults;
+
+    @CommandLine.Option(
+            names = "--golden-results",
+            description = "Compares the result profile of the run with this golden profile (written by "
+                    + "--save-golden-results) and reports drift. Implies --analyze-results.")
+    private Path goldenResults;
+
+    @CommandLine.Option(
+            names = "--save-golden-results",
+            description = "Saves the result profile of the run to this file, as the golden profile for later runs. "
+                    + "Implies --analyze-results.")
+    private Path saveGoldenResults;
+
+    @CommandLine.Option(
+            names = "--drift-tolerance",
+            description = "The largest distance between a result distribution and the golden one (0 to 1) that is "
+                    + "not reported as drift.",
+            defaultValue = "0.05")
+    private double driftTolerance;
+
+    @CommandLine.Option(
+            names = "--jfr",
+            description = "Writes a JDK Flight Recorder recording of the run to this file, using the profile settings "
+                    + "plus the orchestrator's request build, send, response and failure events.")
+    private Path jfrFile;
+
+    @CommandLine.Option(
+            names = "--coordinator-port",
+            description = "Runs as a coordinator on this port, splitting the workload across --workers worker "
+                    + "orchestrators instead of sending frames itself. Requires --measure.")
+    private Integer coordinatorPort;
+
+    @CommandLine.Option(
+            names = "--workers",
+            description = "The number of workers a coordinator waits for before starting.",
+            defaultValue = "1")
+    private int workers;
+
+    @CommandLine.Option(
+            names = "--join-coordinator",
+            description = "Runs as a worker of the coordinator at this host:port. The workload is set by the "
+                    + "coordinator; --uri and --shared-images-dir still apply.",
+            converter = HostAndPortConverter.class)
+    private HostAndPort joinCoordinator;
+
+    @CommandLine.Option(
+            names = "--worker-timeout",
+            description = "How long a coordinator and its workers wait for every worker to be ready, and how long the "
+                    + "coordinator waits for reports after the measurement window should have closed.",
+            defaultValue = "5m",
+            converter = DurationConverter.class)
+    private long workerTimeoutNanos;
+
+    @CommandLine.Option(
+            names = "--worker-name",
+            description = "The name a worker reports to its coordinator. Defaults to pid@hostname.")
+    private String workerName;
+
+    @CommandLine.Spec
+    private CommandLine.Model.CommandSpec spec;
+
+    private final ShutdownSequence shutdown = new ShutdownSequence();
+
     public static AipInferenceProcessorClientV2 grpcV2(HostAndPort hostAndPort, String productName, String productVersion) {
         ManagedChannel channel = ManagedChannelBuilder.forAddress(hostAndPort.getHost(), hostAndPort.getPort())
                 .usePlaintext()
@@ -74,88 +338,329 @@ public final class AipOrchestrator implements Runnable {
 
     @Override
     public void run() {
+        validate();
         System.out.println("Orchestrator: running");
-        System.out.println("Frames per second: " + framesPerSecond);
-
-        switch(type.toLowerCase()) {
-            case "v2":
-                handleV2();
-                break;
-            case "v3video":
-                handleV3Video();
-                break;
-            case "v3imagery":
-                handleV3Imagery();
-                break;
+        if (jfrFile != null) {
+            startFlightRecording();
+        }
+        if (coordinatorPort != null) {
+            new Coordinator(
+                            coordinatorPort,
+                            workers,
+                            type,
+                            framesPerSecond,
+                            streams,
+                            warmup,
+                            measureNanos,
+                            workerTimeoutNanos)
+                    .run();
+            return;
+        }
+        shutdown.install();
+        if (joinCoordinator != null) {
+            runWorker();
+            return;
         }
-    }
-
-    private void handleV2() {
-        System.out.println("Sending configuration request to server...");
-        AipInferenceProcessorClientV2 processor = grpcV2(
-                        HostAndPort.fromParts(uri.getHost(), uri.getPort()),
-                        "AIP Orchestrator",
-                        Optional.ofNullable(AipOrchestrator.class.getPackage().getImplementationVersion())
-                                .orElse("0.0.0"));
 
         try {
-            processor.configure();
+            ProcessorOrchestrator dispatcher = connect();
+            measure(dispatcher);
+            send(dispatcher);
         } catch (RuntimeException e) {
-            System.out.println("Error when initializing processor" + e.toString());
+            finishAfter(e);
             throw e;
         }
-        System.out.println("Processor configured. Getting ready to send inference requests.");
+        shutdown.finish();
+    }
 
-        V2ProcessorOrchestrator dispatcher = new V2ProcessorOrchestrator(sharedImagesDir, processor);
+    /** Rejects combinations of options that a run would otherwise ignore, before any traffic is sent. */
+    private void validate() {
+        // V2 processors only accept video frames, so a mixed workload would fail on its first imagery request.
+        if (mixWeights != null && type.equalsIgnoreCase("v2")) {
+            throw new CommandLine.ParameterException(
+                    spec.commandLine(), "--mix requires a v3 processor; v2 processors only accept video frames");
+        }
+        CommandLine.ParseResult options = spec.commandLine().getParseResult();
+        boolean liveVideo = maxOutstandingFrames > 0
+                || options.hasMatchedOption("--drop-policy")
+                || options.hasMatchedOption("--keyframe-interval");
+        if (liveVideo) {
+            rejectWithLiveVideo(replayLog != null, "--replay");
+            rejectWithLiveVideo(mixWeights != null, "--mix");
+            rejectWithLiveVideo(targetLatencyNanos > 0, "--target-latency");
+        }
+        // Each run mode paces its own requests, so the options of another mode would be silently ignored.
+        boolean arrival = options.hasMatchedOption("--arrival");
+        rejectCombination(replayLog != null && mixWeights != null, "--replay", "--mix");
+        rejectCombination(replayLog != null && targetLatencyNanos > 0, "--replay", "--target-latency");
+        rejectCombination(replayLog != null && arrival, "--replay", "--arrival");
+        rejectCombination(mixWeights != null && targetLatencyNanos > 0, "--mix", "--target-latency");
+        rejectCombination(targetLatencyNanos > 0 && arrival, "--target-latency", "--arrival");
+    }
 
-        long nanosPerFrame = (long) ((1.0 / framesPerSecond) * 1_000_000_000);
-        ScheduledExecutorService executor =  Executors.newScheduledThreadPool(1);
-        dispatcher.sendAtFixedRate(executor, nanosPerFrame, TimeUnit.NANOSECONDS);
+    private void rejectCombination(boolean present, String option, String other) {
+        if (present) {
+            throw new CommandLine.ParameterException(spec.commandLine(), option + " cannot be combined with " + other);
+        }
     }
 
-    private void handleV3Video() {
-        System.out.println("Sending configuration request to server...");
-        AipInferenceProcessorClientV3 processor = grpcV3(
-                HostAndPort.fromParts(uri.getHost(), uri.getPort()),
-                "AIP Orchestrator",
-                Optional.ofNullable(AipOrchestrator.class.getPackage().getImplementationVersion())
-                        .orElse("0.0.0"));
+    private void rejectWithLiveVideo(boolean present, String option) {
+        if (present) {
+            throw new CommandLine.ParameterException(
+                    spec.commandLine(),
+                    "--max-outstanding-frames, --drop-policy and --keyframe-interval only apply to fixed-rate runs "
+                            + "and cannot be combined with " + option);
+        }
+    }
 
-        try {
-            processor.configure();
-        } catch (RuntimeException e) {
-            System.out.println("Error when initializing processor" + e.toString());
-            throw e;
+    private void runWorker() {
+        if (workerName == null) {
+            workerName = ManagementFactory.getRuntimeMXBean().getName();
         }
-        System.out.println("Processor configured. Getting ready to send inference requests.");
+        try (CoordinatorClient coordinator = new CoordinatorClient(joinCoordinator, workerTimeoutNanos)) {
+            System.out.println("Joining coordinator at " + joinCoordinator + " as " + workerName + "...");
+            WorkerAssignment assignment = coordinator.join(workerName);
+            System.out.println("Joined as " + assignment);
+            type = assignment.type();
+            framesPerSecond = assignment.framesPerSecond();
+            streams = assignment.streams();
+            warmup = assignment.warmup();
+            measureNanos = assignment.measureNanos();
 
-        V3ProcessorOrchestrator dispatcher = new V3ProcessorOrchestrator(sharedImagesDir, processor);
+            MeasurementSink measurement;
+            try {
+                ProcessorOrchestrator dispatcher = connect();
+                measurement = measure(dispatcher);
+                long startDelayNanos = coordinator.ready(assignment.workerIndex());
+                TimeUnit.NANOSECONDS.sleep(startDelayNanos);
+                send(dispatcher);
+                shutdown.finish();
+            } catch (InterruptedException | RuntimeException e) {
+                finishAfter(e);
+                // Tell the coordinator, which would otherwise wait for this worker until it times out.
+                try {
+                    coordinator.report(WorkerReport.failed(assignment.workerIndex(), workerName, e));
+                } catch (RuntimeException reportFailure) {
+                    e.addSuppressed(reportFailure);
+                }
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+                throw (RuntimeException) e;
+            }
+            coordinator.report(WorkerReport.of(assignment.workerIndex(), workerName, measurement));
+        }
+    }
 
-        long nanosPerFrame = (long) ((1.0 / framesPerSecond) * 1_000_000_000);
-        ScheduledExecutorService executor =  Executors.newScheduledThreadPool(1);
-        dispatcher.sendVideoAtFixedRate(executor, nanosPerFrame, TimeUnit.NANOSECONDS);
+    /** Reports and closes everything after {@code failure}, without letting a failure to do so hide it. */
+    private void finishAfter(Exception failure) {
+        try {
+            shutdown.finish();
+        } catch (RuntimeException e) {
+            failure.addSuppressed(e);
+        }
     }
 
-    private void handleV3Imagery() {
-        System.out.println("Sending configuration request to server...");
-        AipInferenceProcessorClientV3 processor = grpcV3(
-                HostAndPort.fromParts(uri.getHost(), uri.getPort()),
-                "AIP Orchestrator",
-                Optional.ofNullable(AipOrchestrator.class.getPackage().getImplementationVersion())
-                        .orElse("0.0.0"));
+    private ProcessorOrchestrator connect() {
+        HostAndPort hostAndPort = HostAndPort.fromParts(uri.getHost(), uri.getPort());
+        String version = Optional.ofNullable(AipOrchestrator.class.getPackage().getImplementationVersion())
+                .orElse("0.0.0");
 
+        System.out.println("Sending configuration request to server...");
+        ProcessorOrchestrator dispatcher;
         try {
-            processor.configure();
+            switch (type.toLowerCase()) {
+                case "v2":
+                    AipInferenceProcessorClientV2 processorV2 = grpcV2(hostAndPort, "AIP Orchestrator", version);
+                    configure(processorV2::configure);
+                    dispatcher = new V2ProcessorOrchestrator(sharedImagesDir, processorV2, openRecorder());
+                    break;
+                case "v3video":
+                case "v3imagery":
+                    AipInferenceProcessorClientV3 processorV3 = grpcV3(hostAndPort, "AIP Orchestrator", version);
+                    configure(processorV3::configure);
+                    dispatcher = new V3ProcessorOrchestrator(sharedImagesDir, processorV3, openRecorder());
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown processor type: " + type);
+            }
         } catch (RuntimeException e) {
             System.out.println("Error when initializing processor" + e);
             throw e;
         }
         System.out.println("Processor configured. Getting ready to send inference requests.");
+        shutdown.close(dispatcher::close);
+        for (RequestKind kind : requestKinds()) {
+            if (!dispatcher.supports(kind)) {
+                throw new CommandLine.ParameterException(
+                        spec.commandLine(), "The " + type + " processor does not accept " + kind + " requests");
+            }
+        }
+        // Before a worker reports ready, so that the handshake does not delay its start after the coordinator's go.
+        dispatcher.start();
+        dispatcher.stopWhen(shutdown::isStopping);
+        PacingSink pacing = new PacingSink();
+        shutdown.report(ShutdownSequence.Report.PACING, pacing::report);
+        dispatcher
+                .streams(streams)
+                .arrivals(arrival, burstSize)
+                .executionModel(executionModel)
+                .requestTimeout(requestTimeoutNanos)
+                .addSink(pacing);
+        if (logRequests) {
+            dispatcher.addSink(new LoggingSink());
+        }
+        if (perFrameFiles) {
+            dispatcher.perFrameFiles(frameStoreQuotaBytes, frameWriters);
+        }
+        if (analyzeResults || goldenResults != null || saveGoldenResults != null) {
+            ResultAnalyticsSink analytics = new ResultAnalyticsSink(
+                    Optional.ofNullable(goldenResults), Optional.ofNullable(saveGoldenResults), driftTolerance);
+            shutdown.report(ShutdownSequence.Report.RESULTS, analytics::report);
+            dispatcher.addSink(analytics);
+        }
+        return dispatcher;
+    }
 
-        V3ProcessorOrchestrator dispatcher = new V3ProcessorOrchestrator(sharedImagesDir, processor);
+    private void send(ProcessorOrchestrator dispatcher) {
+        if (replayLog != null) {
+            dispatcher.replay(replayLog, replayTiming, replayMaxInFlight);
+            return;
+        }
+
+        if (mixWeights != null) {
+            sendMixed(dispatcher);
+            return;
+        }
 
+        RequestKind kind = generatedKind();
+        if (targetLatencyNanos > 0) {
+            System.out.println("Initial frames per second: " + framesPerSecond);
+            AdaptiveRateController controller = new AdaptiveRateController(
+                    framesPerSecond, targetPercentile, targetLatencyNanos, controlIntervalNanos);
+            shutdown.report(ShutdownSequence.Report.ADAPTIVE_RATE, controller::report);
+            dispatcher.sendAtAdaptiveRate(kind, controller);
+            return;
+        }
+
+        System.out.println("Frames per second: " + framesPerSecond);
+        if (maxOutstandingFrames > 0) {
+            LiveVideoSink live = new LiveVideoSink();
+            shutdown.report(ShutdownSequence.Report.LIVE_VIDEO, live::report);
+            dispatcher.liveVideo(maxOutstandingFrames, dropPolicy, keyframeInterval).addSink(live);
+        }
         long nanosPerFrame = (long) ((1.0 / framesPerSecond) * 1_000_000_000);
-        ScheduledExecutorService executor =  Executors.newScheduledThreadPool(1);
-        dispatcher.sendImageryAtFixedRate(executor, nanosPerFrame, TimeUnit.NANOSECONDS);
+        dispatcher.sendAtFixedRate(kind, nanosPerFrame, TimeUnit.NANOSECONDS);
+    }
+
+    /** The kinds of requests this run generates; a replayed log is checked against the processor as it is read. */
+    private Set<RequestKind> requestKinds() {
+        if (replayLog != null) {
+            return Set.of();
+        }
+        return mixWeights != null ? mixWeights.keySet() : Set.of(generatedKind());
+    }
+
+    private RequestKind generatedKind() {
+        return type.equalsIgnoreCase("v3imagery") ? RequestKind.IMAGERY : RequestKind.VIDEO;
+    }
+
+    private void sendMixed(ProcessorOrchestrator dispatcher) {
+        MixedWorkload.Builder workload = MixedWorkload.builder().framesPerSecond(framesPerSecond);
+        if (mixMaxInFlight != null) {
+            workload.maxInFlight(mixMaxInFlight);
+        }
+        mixWeights.forEach((kind, weight) -> workload.add(
+                kind, weight, mixPriorities == null ? 0 : mixPriorities.getOrDefault(kind, 0)));
+        MixedWorkload mixed = workload.build();
+        System.out.println("Mixed workload: " + mixed);
+        ((V3ProcessorOrchestrator) dispatcher).sendMixed(mixed);
+    }
+
+    private Optional<RequestLogWriter> openRecorder() {
+        if (recordLog == null) {
+            return Optional.empty();
+        }
+        RequestLogWriter recorder = new RequestLogWriter(recordLog);
+        shutdown.close(() -> {
+            recorder.close();
+            System.out.println("Recorded " + recorder.frames() + " requests to " + recordLog);
+        });
+        System.out.println("Recording requests to " + recordLog);
+        return Optional.of(recorder);
+    }
+
+    private void startFlightRecording() {
+        try {
+            Recording recording = new Recording(Configuration.getConfiguration("profile"));
+            recording.setName("AIP Orchestrator");
+            recording.setDestination(jfrFile);
+            // Runs only end when the process exits, so the recording is written by the flight recorder on exit.
+            recording.setDumpOnExit(true);
+            recording.start();
+        } catch (IOException | ParseException e) {
+            throw new RuntimeException(e);
+        }
+        System.out.println("Recording flight data to " + jfrFile);
+    }
+
+    private static void configure(Runnable configure) {
+        long startNanos = System.nanoTime();
+        configure.run();
+        System.out.println("Processor configure took " + Durations.format(System.nanoTime() - startNanos) + ".");
+    }
+
+    private MeasurementSink measure(ProcessorOrchestrator dispatcher) {
+        MeasurementSink measurement = new MeasurementSink(warmup, measureNanos);
+        dispatcher.addSink(measurement);
+        if (measureNanos > 0) {
+            dispatcher.stopWhen(measurement::isFinished);
+        }
+        shutdown.report(ShutdownSequence.Report.MEASUREMENT, measurement::report);
+        return measurement;
+    }
+
+    static final class WarmupConverter implements CommandLine.ITypeConverter<Warmup> {
+        @Override
+        public Warmup convert(String value) {
+            return Warmup.parse(value);
+        }
+    }
+
+    static final class HostAndPortConverter implements CommandLine.ITypeConverter<HostAndPort> {
+        @Override
+        public HostAndPort convert(String value) {
+            return HostAndPort.fromString(value).requireBracketsForIPv6();
+        }
+    }
+
+    static final class DurationConverter implements CommandLine.ITypeConverter<Long> {
+        @Override
+        public Long convert(String value) {
+            return Durations.parseNanos(value);
+        }
+    }
+
+    static final class ByteSizeConverter implements CommandLine.ITypeConverter<Long> {
+        @Override
+        public Long convert(String value) {
+            String trimmed = value.trim().toLowerCase();
+            int shift;
+            switch (trimmed.isEmpty() ? ' ' : trimmed.charAt(trimmed.length() - 1)) {
+                case 'k':
+                    shift = 10;
+                    break;
+                case 'm':
+                    shift = 20;
+                    break;
+                case 'g':
+                    shift = 30;
+                    break;
+                default:
+                    return Long.parseLong(trimmed);
+            }
+            return Long.parseLong(trimmed.substring(0, trimmed.length() - 1)) << shift;
+        }
     }
 }
@@ -0,0 +1,117 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.cli;
+
+import com.palantir.aip.processing.stats.Durations;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Ends a run in one fixed order, whether it finishes by itself or the process is interrupted: first the load engine
+ * stops, then every report is printed in {@link Report} order, then resources are closed in reverse order of
+ * registration.
+ *
+ * The JVM runs shutdown hooks concurrently and in no particular order, so the orchestrator registers only this one.
+ * On interruption, the hook asks the run to stop and waits for the main thread to finish the sequence. If the run
+ * has not stopped within {@link #STOP_GRACE_NANOS}, the hook finishes the sequence itself.
+ */
+@SuppressWarnings("BanSystemOut")
+final class ShutdownSequence {
+    private static final long STOP_GRACE_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /** The reports of a run, in the order they are printed. */
+    enum Report {
+        MEASUREMENT,
+        PACING,
+        LIVE_VIDEO,
+        ADAPTIVE_RATE,
+        RESULTS
+    }
+
+    private final AtomicBoolean stopping = new AtomicBoolean();
+    private final AtomicBoolean finishing = new AtomicBoolean();
+    private final CountDownLatch finished = new CountDownLatch(1);
+    // Guarded by this.
+    private final Map<Report, Runnable> reports = new EnumMap<>(Report.class);
+    // Guarded by this.
+    private final List<Runnable> resources = new ArrayList<>();
+
+    /** Registers the shutdown hook that runs this sequence when the process is interrupted. */
+    void install() {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::onShutdown, "orchestrator-shutdown"));
+    }
+
+    /** Whether the run has been asked to stop. */
+    boolean isStopping() {
+        return stopping.get();
+    }
+
+    synchronized void report(Report report, Runnable print) {
+        reports.put(report, print);
+    }
+
+    /** Closes {@code resource} after every report has been printed. */
+    synchronized void close(Runnable resource) {
+        resources.add(resource);
+    }
+
+    /**
+     * Prints every report and closes every resource, unless that has already been done. The main thread calls this
+     * once the load engine has stopped. Throws the first failure, after running every step.
+     */
+    void finish() {
+        if (!finishing.compareAndSet(false, true)) {
+            return;
+        }
+        List<Runnable> steps = new ArrayList<>();
+        synchronized (this) {
+            steps.addAll(reports.values());
+            for (int i = resources.size() - 1; i >= 0; i--) {
+                steps.add(resources.get(i));
+            }
+        }
+        RuntimeException failure = null;
+        for (Runnable step : steps) {
+            try {
+                step.run();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null && stopping.get()) {
+            // The process exits as soon as the shutdown hook returns, before the failure could reach the caller.
+            System.out.println("Orchestrator: could not finish the run: " + failure);
+        }
+        finished.countDown();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void onShutdown() {
+        stopping.set(true);
+        try {
+            if (finished.await(STOP_GRACE_NANOS, TimeUnit.NANOSECONDS)) {
+                return;
+            }
+            System.out.println("Orchestrator: the run did not stop within " + Durations.format(STOP_GRACE_NANOS)
+                    + "; reporting while requests are still outstanding.");
+            finish();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            // Already printed by finish().
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.control;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.protobuf.Message;
+import com.palantir.aip.processing.engine.LoadSink;
+import com.palantir.aip.processing.engine.Request;
+import com.palantir.aip.processing.engine.Scheduler;
+import com.palantir.aip.processing.engine.Schedulers;
+import com.palantir.aip.processing.stats.Durations;
+import com.palantir.aip.processing.stats.LatencyHistogram;
+import com.palantir.aip.processing.stats.RollingLatencyWindow;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Searches for the highest send rate at which a latency percentile stays under a target.
+ *
+ * The controller starts at the initial rate and doubles it every control interval until the target is first missed,
+ * then switches to additive-increase/multiplicative-decrease around the limit. Each decision is based on a rolling
+ * window of recent response latencies; the first interval is discarded so that cold-start latencies do not count.
+ * The target counts as missed once more responses exceed it than the percentile allows, so a single slow response in
+ * a small window does not trigger a back-off. The run has converged after {@link #BACKOFFS_TO_CONVERGE} back-offs;
+ * the reported sustainable rate is the average of the last rates that met the target before each back-off. The run
+ * also ends, reporting the target as unattainable, after {@link #MISSES_TO_GIVE_UP} consecutive misses or a miss at
+ * {@link #MIN_FRAMES_PER_SECOND}.
+ */
+@SuppressWarnings("BanSystemOut")
+public final class AdaptiveRateController implements LoadSink {
+    private static final int WINDOW_INTERVALS = 3;
+    private static final double DECREASE_FACTOR = 0.8;
+    private static final double ADDITIVE_STEP_FRACTION = 0.05;
+    private static final double GENERATOR_SHORTFALL = 0.9;
+    private static final int BACKOFFS_TO_CONVERGE = 5;
+    private static final int MISSES_TO_GIVE_UP = 10;
+    private static final double MIN_FRAMES_PER_SECOND = 0.1;
+
+    private final double percentile;
+    private final long targetNanos;
+    private final long intervalNanos;
+    private final RollingLatencyWindow window = new RollingLatencyWindow(WINDOW_INTERVALS);
+    private final LongAdder sentInInterval = new LongAdder();
+    private final AtomicBoolean reported = new AtomicBoolean();
+    private final ScheduledExecutorService controlThread = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("adaptive-rate-controller").setDaemon(true).build());
+
+    private volatile double framesPerSecond;
+    private volatile boolean converged = false;
+    private volatile boolean unattainable = false;
+
+    private boolean settled = false;
+    private boolean slowStart = true;
+    private double additiveStep;
+    private double lastMetRate = 0;
+    private double highestMetRate = 0;
+    private double peakRateSum = 0;
+    private int backoffs = 0;
+    // A miss only counts as a back-off from a rate that met the target.
+    private boolean lastMet = false;
+    private int consecutiveMisses = 0;
+    private int generatorLimitedIntervals = 0;
+
+    public AdaptiveRateController(
+            double initialFramesPerSecond, double percentile, long targetNanos, long intervalNanos) {
+        if (!(percentile > 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("target percentile must be in (0, 100]: " + percentile);
+        }
+        if (!(initialFramesPerSecond > 0) || targetNanos <= 0 || intervalNanos <= 0) {
+            throw new IllegalArgumentException("initial rate, latency target and control interval must be positive");
+        }
+        this.framesPerSecond = initialFramesPerSecond;
+        this.percentile = percentile;
+        this.targetNanos = targetNanos;
+        this.intervalNanos = intervalNanos;
+    }
+
+    /** Returns the scheduler for one of {@code streams} streams that together send at the controlled rate. */
+    public Scheduler scheduler(int stream, int streams) {
+        return new Scheduler() {
+            private long nextNanos = -1;
+
+            @Override
+            public long awaitNext() throws InterruptedException {
+                long periodNanos = (long) (streams * 1_000_000_000.0 / framesPerSecond);
+                long nowNanos = System.nanoTime();
+                if (nextNanos < 0) {
+                    nextNanos = nowNanos + periodNanos * stream / streams;
+                } else {
+                    nextNanos += periodNanos;
+                    // Do not burst to catch up on sends missed before a rate change.
+                    if (nextNanos < nowNanos - periodNanos) {
+                        nextNanos = nowNanos;
+                    }
+                }
+                Schedulers.awaitNanoTime(nextNanos);
+                return nextNanos;
+            }
+        };
+    }
+
+    /** Whether the search has ended, either on the sustainable rate or because the target is unattainable. */
+    public boolean isConverged() {
+        return converged;
+    }
+
+    public boolean isUnattainable() {
+        return unattainable;
+    }
+
+    @Override
+    public void onStart(long startupNanos) {
+        controlThread.scheduleAtFixedRate(this::control, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void onSent(Request request, long sendNanos) {
+        sentInInterval.increment();
+    }
+
+    @Override
+    public void onResponse(Request request, Message response, long latencyNanos) {
+        window.record(latencyNanos);
+    }
+
+    @Override
+    public void onComplete() {
+        controlThread.shutdownNow();
+    }
+
+    /** Prints the result of the search, unless it has already been printed. */
+    public synchronized void report() {
+        if (!reported.compareAndSet(false, true)) {
+            return;
+        }
+        String target = "p" + percentile + " < " + Durations.format(targetNanos);
+        if (unattainable) {
+            System.out.println("Adaptive rate: " + target + " is unattainable; it was missed " + consecutiveMisses
+                    + " times in a row, down to " + format(framesPerSecond) + " frames per second"
+                    + (highestMetRate > 0 ? " (highest rate that met it: " + format(highestMetRate) + ")." : "."));
+            return;
+        }
+        if (backoffs == 0) {
+            System.out.println("Adaptive rate: " + target + " was never exceeded; highest rate tried "
+                    + format(highestMetRate) + " frames per second"
+                    + (generatorLimitedIntervals > 0 ? " (limited by the orchestrator's own send rate)." : "."));
+            return;
+        }
+        System.out.println("Adaptive rate: highest sustainable rate for " + target + " is "
+                + format(sustainableFramesPerSecond()) + " frames per second (highest rate that met the target: "
+                + format(highestMetRate) + ", " + backoffs + " back-offs"
+                + (converged ? ")." : ", not converged)."));
+    }
+
+    /** The rate the next interval is sent at. */
+    double framesPerSecond() {
+        return framesPerSecond;
+    }
+
+    /** The average of the last rates that met the target before each back-off. */
+    synchronized double sustainableFramesPerSecond() {
+        return backoffs == 0 ? 0 : peakRateSum / backoffs;
+    }
+
+    synchronized void control() {
+        LatencyHistogram recent = window.snapshot();
+        long sent = sentInInterval.sumThenReset();
+        window.advance();
+        if (!settled) {
+            window.clear();
+            settled = true;
+            return;
+        }
+        if (converged || (sent == 0 && recent.count() == 0)) {
+            return;
+        }
+
+        double rate = framesPerSecond;
+        long observedNanos = recent.percentileNanos(percentile);
+        // At p100 no response may exceed the target, however many there are.
+        long minSamples = percentile >= 100 ? 1 : (long) Math.ceil(100 / (100 - percentile));
+        long allowedOverTarget = (long) ((100 - percentile) / 100 * Math.max(recent.count(), minSamples));
+        // Requests that were sent but never answered mean the processor has stalled, which also misses the target.
+        boolean met = recent.count() > 0 && recent.countAbove(targetNanos) <= allowedOverTarget;
+        double expected = rate * intervalNanos / 1_000_000_000.0;
+        boolean generatorLimited = sent < GENERATOR_SHORTFALL * expected;
+
+        if (met) {
+            consecutiveMisses = 0;
+            lastMetRate = rate;
+            highestMetRate = Math.max(highestMetRate, rate);
+            if (generatorLimited) {
+                generatorLimitedIntervals++;
+                converged = generatorLimitedIntervals >= BACKOFFS_TO_CONVERGE;
+            } else {
+                framesPerSecond = slowStart ? rate * 2 : rate + additiveStep;
+            }
+        } else {
+            if (slowStart) {
+                slowStart = false;
+                additiveStep = Math.max(lastMetRate, rate / 2) * ADDITIVE_STEP_FRACTION;
+            }
+            // Consecutive misses while the processor drains its backlog belong to the same back-off.
+            if (lastMet) {
+                backoffs++;
+                peakRateSum += lastMetRate;
+            }
+            consecutiveMisses++;
+            unattainable = consecutiveMisses >= MISSES_TO_GIVE_UP || rate <= MIN_FRAMES_PER_SECOND;
+            framesPerSecond = Math.max(rate * DECREASE_FACTOR, MIN_FRAMES_PER_SECOND);
+            // Latencies observed at the old rate would otherwise trigger another back-off.
+            window.clear();
+            converged = unattainable || backoffs >= BACKOFFS_TO_CONVERGE;
+        }
+
+        lastMet = met;
+
+        System.out.println("Adaptive rate: " + format(rate) + " frames per second, p" + percentile + " "
+                + (recent.count() == 0 ? "unavailable" : Durations.format(observedNanos)) + " over "
+                + recent.count() + " responses, target " + (met ? "met" : "missed")
+                + (generatorLimited ? " (orchestrator could not keep up)" : "") + "; next rate "
+                + format(framesPerSecond));
+    }
+
+    private static String format(double rate) {
+        return String.format("%.2f", rate);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.distributed;
+
+import io.grpc.MethodDescriptor;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * The gRPC methods spoken between a {@link Coordinator} and its workers.
+ *
+ * A worker calls {@code Join} to receive its {@link WorkerAssignment}, then {@code Ready} once its processor is
+ * configured. The coordinator answers every {@code Ready} call at the same time, once all workers are ready, with the
+ * delay after which they start sending. Finally each worker sends its {@link WorkerReport}.
+ */
+final class CoordinationProtocol {
+    static final String SERVICE_NAME = "com.palantir.aip.processing.Coordinator";
+
+    static final MethodDescriptor<String, WorkerAssignment> JOIN = unary(
+            "Join",
+            marshaller(DataOutput::writeUTF, DataInput::readUTF),
+            marshaller((out, value) -> value.writeTo(out), WorkerAssignment::readFrom));
+
+    static final MethodDescriptor<Integer, Long> READY = unary(
+            "Ready",
+            marshaller(DataOutput::writeInt, DataInput::readInt),
+            marshaller(DataOutput::writeLong, DataInput::readLong));
+
+    static final MethodDescriptor<WorkerReport, Boolean> REPORT = unary(
+            "Report",
+            marshaller((out, value) -> value.writeTo(out), WorkerReport::readFrom),
+            marshaller(DataOutput::writeBoolean, DataInput::readBoolean));
+
+    private CoordinationProtocol() {}
+
+    private static <ReqT, RespT> MethodDescriptor<ReqT, RespT> unary(
+            String method, MethodDescriptor.Marshaller<ReqT> request, MethodDescriptor.Marshaller<RespT> response) {
+        return MethodDescriptor.<ReqT, RespT>newBuilder()
+                .setType(MethodDescriptor.MethodType.UNARY)
+                .setFullMethodName(MethodDescriptor.generateFullMethodName(SERVICE_NAME, method))
+                .setRequestMarshaller(request)
+                .setResponseMarshaller(response)
+                .build();
+    }
+
+    private static <T> MethodDescriptor.Marshaller<T> marshaller(Writer<T> writer, Reader<T> reader) {
+        return new MethodDescriptor.Marshaller<>() {
+            @Override
+            public InputStream stream(T value) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (DataOutputStream out = new DataOutputStream(bytes)) {
+                    writer.write(out, value);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return new ByteArrayInputStream(bytes.toByteArray());
+            }
+
+            @Override
+            public T parse(InputStream stream) {
+                try (DataInputStream in = new DataInputStream(stream)) {
+                    return reader.read(in);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    private interface Writer<T> {
+        void write(DataOutput out, T value) throws IOException;
+    }
+
+    private interface Reader<T> {
+        T read(DataInput in) throws IOException;
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.distributed;
+
+import com.palantir.aip.processing.stats.Durations;
+import com.palantir.aip.processing.stats.LatencyHistogram;
+import com.palantir.aip.processing.stats.Warmup;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits a workload across a fixed number of worker orchestrators, starts them together and merges their results.
+ *
+ * The coordinator does not send any frames itself. Workers connect to it over gRPC, so they can run as several
+ * processes on one host or spread over several nodes. It gives up, naming the missing workers, if they are not all
+ * ready within the worker timeout, or if they have not all reported within the worker timeout of the expected end of
+ * the measurement window.
+ */
+@SuppressWarnings("BanSystemOut")
+public final class Coordinator {
+    private static final long START_DELAY_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    private final int port;
+    private final int workers;
+    private final String type;
+    private final double framesPerSecond;
+    private final int streams;
+    private final Warmup warmup;
+    private final long measureNanos;
+    private final long workerTimeoutNanos;
+
+    private final List<String> workerNames = new ArrayList<>();
+    private final Map<Integer, StreamObserver<Long>> readyWorkers = new HashMap<>();
+    private final WorkerReport[] reports;
+    private final CountDownLatch ready;
+    private final CountDownLatch reported;
+    // Guarded by this.
+    private boolean started = false;
+    // Guarded by this.
+    private boolean abandoned = false;
+    // Guarded by this.
+    private String failedBeforeStart = null;
+
+    public Coordinator(
+            int port,
+            int workers,
+            String type,
+            double framesPerSecond,
+            int streams,
+            Warmup warmup,
+            long measureNanos,
+            long workerTimeoutNanos) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("at least one worker is required");
+        }
+        if (measureNanos <= 0) {
+            throw new IllegalArgumentException("a measurement window is required when coordinating workers");
+        }
+        this.port = port;
+        this.workers = workers;
+        this.type = type;
+        this.framesPerSecond = framesPerSecond;
+        this.streams = streams;
+        this.warmup = warmup;
+        this.measureNanos = measureNanos;
+        this.workerTimeoutNanos = workerTimeoutNanos;
+        this.reports = new WorkerReport[workers];
+        this.ready = new CountDownLatch(workers);
+        this.reported = new CountDownLatch(workers);
+    }
+
+    /**
+     * Serves workers until every one of them has reported, then prints the merged report. Throws if a worker does not
+     * show up or report in time, or reports that its run failed.
+     */
+    public void run() {
+        Server server;
+        try {
+            server = ServerBuilder.forPort(port).addService(service()).build().start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not start coordinator on port " + port, e);
+        }
+        System.out.println("Coordinator: listening on port " + port + ", waiting for " + workers + " workers.");
+
+        try {
+            if (!ready.await(workerTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw abandon("workers were not ready within " + Durations.format(workerTimeoutNanos) + ": "
+                        + missingReadyWorkers());
+            }
+            synchronized (this) {
+                if (failedBeforeStart != null) {
+                    throw abandon(failedBeforeStart + " failed before the run started");
+                }
+            }
+            long runNanos = START_DELAY_NANOS + warmup.nanos() + measureNanos;
+            if (!reported.await(runNanos + workerTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw abandon("workers did not report within " + Durations.format(workerTimeoutNanos)
+                        + " of the end of the run: " + missingReports());
+            }
+        } catch (InterruptedException e) {
+            System.out.println("Coordinator: interrupted. Shutting down.");
+            server.shutdownNow();
+            throw new RuntimeException(e);
+        }
+        server.shutdown();
+        printReport();
+        List<String> failed = failedWorkers();
+        if (!failed.isEmpty()) {
+            throw new IllegalStateException("workers failed: " + String.join(", ", failed));
+        }
+    }
+
+    private ServerServiceDefinition service() {
+        return ServerServiceDefinition.builder(CoordinationProtocol.SERVICE_NAME)
+                .addMethod(CoordinationProtocol.JOIN, ServerCalls.asyncUnaryCall(this::join))
+                .addMethod(CoordinationProtocol.READY, ServerCalls.asyncUnaryCall(this::ready))
+                .addMethod(CoordinationProtocol.REPORT, ServerCalls.asyncUnaryCall(this::report))
+                .build();
+    }
+
+    private synchronized void join(String workerName, StreamObserver<WorkerAssignment> observer) {
+        if (workerNames.size() >= workers) {
+            observer.onError(Status.RESOURCE_EXHAUSTED
+                    .withDescription("all " + workers + " worker slots are taken")
+                    .asRuntimeException());
+            return;
+        }
+        WorkerAssignment assignment = assignment(workerNames.size());
+        workerNames.add(workerName);
+        System.out.println("Coordinator: " + workerName + " joined as " + assignment);
+        observer.onNext(assignment);
+        observer.onCompleted();
+    }
+
+    private synchronized void ready(int workerIndex, StreamObserver<Long> observer) {
+        if (workerIndex < 0 || workerIndex >= workerNames.size()) {
+            observer.onError(unknownWorker(workerIndex));
+            return;
+        }
+        if (abandoned) {
+            observer.onError(
+                    Status.ABORTED.withDescription("the coordinator gave up on this run").asRuntimeException());
+            return;
+        }
+        if (started || readyWorkers.containsKey(workerIndex)) {
+            observer.onError(Status.ALREADY_EXISTS
+                    .withDescription(workerNames.get(workerIndex) + " is already ready")
+                    .asRuntimeException());
+            return;
+        }
+        readyWorkers.put(workerIndex, observer);
+        System.out.println("Coordinator: " + workerNames.get(workerIndex) + " is ready (" + readyWorkers.size()
+                + " of " + workers + ").");
+        if (readyWorkers.size() < workers) {
+            return;
+        }
+        System.out.println("Coordinator: all workers ready, starting in " + Durations.format(START_DELAY_NANOS)
+                + ".");
+        for (StreamObserver<Long> worker : readyWorkers.values()) {
+            worker.onNext(START_DELAY_NANOS);
+            worker.onCompleted();
+            ready.countDown();
+        }
+        readyWorkers.clear();
+        started = true;
+    }
+
+    private void report(WorkerReport report, StreamObserver<Boolean> observer) {
+        boolean first;
+        synchronized (this) {
+            if (report.workerIndex() < 0 || report.workerIndex() >= workerNames.size()) {
+                observer.onError(unknownWorker(report.workerIndex()));
+                return;
+            }
+            // A retried report must not count twice, or the merged report would miss a worker.
+            first = reports[report.workerIndex()] == null;
+            if (first) {
+                reports[report.workerIndex()] = report;
+            }
+        }
+        System.out.println("Coordinator: received " + (first ? "" : "duplicate ")
+                + (report.error().isPresent() ? "failure " : "") + "report from " + report.workerName() + ".");
+        observer.onNext(true);
+        observer.onCompleted();
+        if (first) {
+            reported.countDown();
+            if (report.error().isPresent()) {
+                failBeforeStart(report);
+            }
+        }
+    }
+
+    /** Stops waiting for the other workers to be ready if {@code report} arrives before the run has started. */
+    private synchronized void failBeforeStart(WorkerReport report) {
+        if (ready.getCount() > 0 && failedBeforeStart == null) {
+            failedBeforeStart = report.workerName() + " (" + report.error().get() + ")";
+            while (ready.getCount() > 0) {
+                ready.countDown();
+            }
+        }
+    }
+
+    private static RuntimeException unknownWorker(int workerIndex) {
+        return Status.INVALID_ARGUMENT.withDescription("unknown worker index " + workerIndex).asRuntimeException();
+    }
+
+    /** Fails the workers still waiting to start and returns the exception that ends the run. */
+    private synchronized RuntimeException abandon(String message) {
+        abandoned = true;
+        System.out.println("Coordinator: giving up, " + message + ".");
+        for (StreamObserver<Long> worker : readyWorkers.values()) {
+            worker.onError(Status.ABORTED.withDescription("the coordinator gave up: " + message).asRuntimeException());
+        }
+        readyWorkers.clear();
+        return new IllegalStateException(message);
+    }
+
+    private synchronized String missingReadyWorkers() {
+        List<String> missing = new ArrayList<>();
+        for (int index = 0; index < workerNames.size(); index++) {
+            if (!readyWorkers.containsKey(index)) {
+                missing.add(workerNames.get(index));
+            }
+        }
+        if (workerNames.size() < workers) {
+            missing.add((workers - workerNames.size()) + " that never joined");
+        }
+        return String.join(", ", missing);
+    }
+
+    private synchronized String missingReports() {
+        List<String> missing = new ArrayList<>();
+        for (int index = 0; index < workers; index++) {
+            if (reports[index] == null) {
+                missing.add(workerNames.get(index));
+            }
+        }
+        return String.join(", ", missing);
+    }
+
+    private synchronized List<String> failedWorkers() {
+        List<String> failed = new ArrayList<>();
+        for (WorkerReport report : reports) {
+            report.error().ifPresent(error -> failed.add(report.workerName() + " (" + error + ")"));
+        }
+        return failed;
+    }
+
+    private WorkerAssignment assignment(int workerIndex) {
+        // Streams are dealt out as evenly as possible and the rate follows the streams, so every stream sends at the
+        // same rate. With fewer streams than workers, every worker runs a single stream at an equal share.
+        int workerStreams = Math.max(1, streams / workers + (workerIndex < streams % workers ? 1 : 0));
+        double share = streams >= workers ? (double) workerStreams / streams : 1.0 / workers;
+        return new WorkerAssignment(
+                workerIndex, workers, type, framesPerSecond * share, workerStreams, warmup, measureNanos);
+    }
+
+    private synchronized void printReport() {
+        LatencyHistogram merged = new LatencyHistogram();
+        long failures = 0;
+        double responsesPerSecond = 0;
+        System.out.println("Coordinator: merged report from " + workers + " workers");
+        for (WorkerReport report : reports) {
+            if (report.error().isPresent()) {
+                System.out.println("  " + report.workerName() + ": failed: " + report.error().get());
+                continue;
+            }
+            merged.merge(report.latencies());
+            failures += report.failures();
+            responsesPerSecond += report.responsesPerSecond();
+            System.out.println("  " + report.workerName() + ": " + report.latencies().count() + " responses, "
+                    + report.failures() + " failures, " + String.format("%.2f", report.responsesPerSecond())
+                    + " responses per second, p99 "
+                    + String.format("%.3f ms", report.latencies().percentileNanos(99) / 1_000_000.0));
+        }
+        System.out.println("  total: " + merged.count() + " responses, " + failures + " failures, "
+                + String.format("%.2f", responsesPerSecond) + " responses per second");
+        System.out.println("  latency: " + merged.summary());
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.distributed;
+
+import com.google.common.net.HostAndPort;
+import io.grpc.CallOptions;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.stub.ClientCalls;
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The worker side of the coordination protocol. Every call has a deadline, so that a worker gives up instead of
+ * waiting forever on a coordinator that has gone away.
+ */
+public final class CoordinatorClient implements Closeable {
+    private static final long CALL_TIMEOUT_SECONDS = 30;
+
+    private final ManagedChannel channel;
+    private final long readyTimeoutNanos;
+
+    /** {@code readyTimeoutNanos} bounds how long {@link #ready} waits for the other workers. */
+    public CoordinatorClient(HostAndPort coordinator, long readyTimeoutNanos) {
+        this.readyTimeoutNanos = readyTimeoutNanos;
+        this.channel = ManagedChannelBuilder.forAddress(coordinator.getHost(), coordinator.getPort())
+                .usePlaintext()
+                .build();
+    }
+
+    public WorkerAssignment join(String workerName) {
+        return ClientCalls.blockingUnaryCall(channel, CoordinationProtocol.JOIN, callOptions(), workerName);
+    }
+
+    /** Blocks until every worker is ready and returns how many nanoseconds to wait before starting. */
+    public long ready(int workerIndex) {
+        return ClientCalls.blockingUnaryCall(
+                channel,
+                CoordinationProtocol.READY,
+                CallOptions.DEFAULT.withDeadlineAfter(readyTimeoutNanos, TimeUnit.NANOSECONDS),
+                workerIndex);
+    }
+
+    public void report(WorkerReport report) {
+        ClientCalls.blockingUnaryCall(channel, CoordinationProtocol.REPORT, callOptions(), report);
+    }
+
+    private static CallOptions callOptions() {
+        return CallOptions.DEFAULT.withDeadlineAfter(CALL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void close() {
+        channel.shutdown();
+    }
+}
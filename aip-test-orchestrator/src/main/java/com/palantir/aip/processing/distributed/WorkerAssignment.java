@@ -0,0 +1,93 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.distributed;
+
+import com.palantir.aip.processing.stats.Warmup;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/** The share of the workload that the coordinator hands to a single worker when it joins. */
+public final class WorkerAssignment {
+    private final int workerIndex;
+    private final int workerCount;
+    private final String type;
+    private final double framesPerSecond;
+    private final int streams;
+    private final Warmup warmup;
+    private final long measureNanos;
+
+    public WorkerAssignment(
+            int workerIndex,
+            int workerCount,
+            String type,
+            double framesPerSecond,
+            int streams,
+            Warmup warmup,
+            long measureNanos) {
+        this.workerIndex = workerIndex;
+        this.workerCount = workerCount;
+        this.type = type;
+        this.framesPerSecond = framesPerSecond;
+        this.streams = streams;
+        this.warmup = warmup;
+        this.measureNanos = measureNanos;
+    }
+
+    public int workerIndex() {
+        return workerIndex;
+    }
+
+    public int workerCount() {
+        return workerCount;
+    }
+
+    public String type() {
+        return type;
+    }
+
+    public double framesPerSecond() {
+        return framesPerSecond;
+    }
+
+    public int streams() {
+        return streams;
+    }
+
+    public Warmup warmup() {
+        return warmup;
+    }
+
+    public long measureNanos() {
+        return measureNanos;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(workerIndex);
+        out.writeInt(workerCount);
+        out.writeUTF(type);
+        out.writeDouble(framesPerSecond);
+        out.writeInt(streams);
+        warmup.writeTo(out);
+        out.writeLong(measureNanos);
+    }
+
+    static WorkerAssignment readFrom(DataInput in) throws IOException {
+        return new WorkerAssignment(
+                in.readInt(),
+                in.readInt(),
+                in.readUTF(),
+                in.readDouble(),
+                in.readInt(),
+                Warmup.readFrom(in),
+                in.readLong());
+    }
+
+    @Override
+    public String toString() {
+        return "worker " + (workerIndex + 1) + " of " + workerCount + ": " + type + " at " + framesPerSecond
+                + " frames per second over " + streams + " streams, warm-up " + warmup;
+    }
+}
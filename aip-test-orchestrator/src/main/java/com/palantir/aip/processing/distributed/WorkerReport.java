@@ -0,0 +1,106 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.distributed;
+
+import com.palantir.aip.processing.stats.LatencyHistogram;
+import com.palantir.aip.processing.stats.MeasurementSink;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * The steady-state results of a single worker, sent to the coordinator once its measurement window closes, or the
+ * error that ended its run early.
+ */
+public final class WorkerReport {
+    private final int workerIndex;
+    private final String workerName;
+    private final long failures;
+    private final long windowNanos;
+    private final LatencyHistogram latencies;
+    private final Optional<String> error;
+
+    public WorkerReport(
+            int workerIndex,
+            String workerName,
+            long failures,
+            long windowNanos,
+            LatencyHistogram latencies,
+            Optional<String> error) {
+        this.workerIndex = workerIndex;
+        this.workerName = workerName;
+        this.failures = failures;
+        this.windowNanos = windowNanos;
+        this.latencies = latencies;
+        this.error = error;
+    }
+
+    public static WorkerReport of(int workerIndex, String workerName, MeasurementSink measurement) {
+        return new WorkerReport(
+                workerIndex,
+                workerName,
+                measurement.failures(),
+                measurement.windowNanos(),
+                measurement.latencies(),
+                Optional.empty());
+    }
+
+    /** A report of a worker whose run failed with {@code error} before its measurement window closed. */
+    public static WorkerReport failed(int workerIndex, String workerName, Throwable error) {
+        return new WorkerReport(workerIndex, workerName, 0, 0, new LatencyHistogram(), Optional.of(error.toString()));
+    }
+
+    public int workerIndex() {
+        return workerIndex;
+    }
+
+    public String workerName() {
+        return workerName;
+    }
+
+    public long failures() {
+        return failures;
+    }
+
+    public long windowNanos() {
+        return windowNanos;
+    }
+
+    public LatencyHistogram latencies() {
+        return latencies;
+    }
+
+    /** The error that ended the worker's run, if it failed. */
+    public Optional<String> error() {
+        return error;
+    }
+
+    public double responsesPerSecond() {
+        return windowNanos == 0 ? 0 : latencies.count() / (windowNanos / 1_000_000_000.0);
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(workerIndex);
+        out.writeUTF(workerName);
+        out.writeLong(failures);
+        out.writeLong(windowNanos);
+        latencies.writeTo(out);
+        out.writeBoolean(error.isPresent());
+        if (error.isPresent()) {
+            out.writeUTF(error.get());
+        }
+    }
+
+    static WorkerReport readFrom(DataInput in) throws IOException {
+        int workerIndex = in.readInt();
+        String workerName = in.readUTF();
+        long failures = in.readLong();
+        long windowNanos = in.readLong();
+        LatencyHistogram latencies = LatencyHistogram.readFrom(in);
+        Optional<String> error = in.readBoolean() ? Optional.of(in.readUTF()) : Optional.empty();
+        return new WorkerReport(workerIndex, workerName, failures, windowNanos, latencies, error);
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.engine;
+
+/** How the requests of a generated stream are spread over time, at a given mean rate. */
+public enum ArrivalProcess {
+    /** One request every period. */
+    CONSTANT,
+    /** Exponentially distributed gaps between requests, as from many independent sources. */
+    POISSON,
+    /** Bursts of back-to-back requests separated by idle gaps, like a sensor that delivers frames in batches. */
+    BURST;
+
+    /**
+     * Returns a scheduler that sends one request every {@code meanPeriodNanos} on average, starting
+     * {@code initialDelayNanos} after the first call. {@code burstSize} is the number of requests per burst for
+     * {@link #BURST} and is ignored otherwise.
+     */
+    public Scheduler scheduler(long meanPeriodNanos, long initialDelayNanos, int burstSize) {
+        switch (this) {
+            case CONSTANT:
+                return Schedulers.fixedRate(meanPeriodNanos, initialDelayNanos);
+            case POISSON:
+                return Schedulers.poisson(meanPeriodNanos, initialDelayNanos);
+            case BURST:
+                return Schedulers.bursts(meanPeriodNanos, burstSize, initialDelayNanos);
+            default:
+                throw new IllegalStateException("unknown arrival process: " + this);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.engine;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/** The threads that a {@link LoadEngine} runs its stream senders and response callbacks on. */
+public enum ExecutionModel {
+    /**
+     * One platform thread per stream, with responses handled directly on the gRPC threads that deliver them.
+     */
+    PLATFORM,
+    /**
+     * One virtual thread per stream and per response, so thousands of streams can block on their schedule, the
+     * in-flight cap or a frame store without a platform thread each. Requires Java 21 or later.
+     */
+    VIRTUAL;
+
+    // Thread.isVirtual(), or null before Java 21.
+    private static final MethodHandle IS_VIRTUAL = isVirtualHandle();
+
+    ExecutorService streamExecutor(int streams) {
+        switch (this) {
+            case PLATFORM:
+                return Executors.newFixedThreadPool(
+                        streams,
+                        new ThreadFactoryBuilder().setNameFormat("orchestrator-stream-%d").build());
+            case VIRTUAL:
+                return virtualThreadPerTask("orchestrator-stream-");
+            default:
+                throw new IllegalStateException("unknown execution model: " + this);
+        }
+    }
+
+    /** The threads that run response callbacks, or empty to run them on the gRPC threads that deliver responses. */
+    Optional<ExecutorService> callbackThreads() {
+        switch (this) {
+            case PLATFORM:
+                return Optional.empty();
+            case VIRTUAL:
+                return Optional.of(virtualThreadPerTask("orchestrator-callback-"));
+            default:
+                throw new IllegalStateException("unknown execution model: " + this);
+        }
+    }
+
+    /** Whether the calling thread is a virtual thread. */
+    static boolean isVirtualThread() {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (boolean) IS_VIRTUAL.invokeExact(Thread.currentThread());
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    /** Throws unless this model can run on the current JVM. */
+    public void checkSupported() {
+        if (this == VIRTUAL) {
+            virtualThreadPerTask("orchestrator-check-").shutdown();
+        }
+    }
+
+    private static MethodHandle isVirtualHandle() {
+        try {
+            return MethodHandles.publicLookup()
+                    .findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    // The orchestrator is built for Java 11, so virtual threads are only reachable reflectively.
+    private static ExecutorService virtualThreadPerTask(String namePrefix) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            return (ExecutorService)
+                    Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(
+                    "virtual threads require Java 21 or later, but this is Java " + Runtime.version(), e);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.engine;
+
+/** What a live stream does with a captured frame while it already has the maximum number of frames outstanding. */
+public enum FrameDropPolicy {
+    /** Drops the captured frame; the processor only sees frames captured while it had capacity. */
+    DROP_NEWEST,
+    /**
+     * Holds the captured frame and sends it as soon as an outstanding frame completes. A newer capture replaces the
+     * held frame, so the processor always receives the latest frame available.
+     */
+    REPLACE_WITH_LATEST,
+    /** Drops the captured frame and every following frame up to the next keyframe, like a decoder that lost sync. */
+    SKIP_TO_KEYFRAME
+}
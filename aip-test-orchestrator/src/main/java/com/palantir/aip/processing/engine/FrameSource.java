@@ -0,0 +1,17 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.engine;
+
+import java.io.Closeable;
+import java.util.Optional;
+
+/** Produces the requests sent by a single stream. */
+public interface FrameSource extends Closeable {
+    /** Returns the next request to send, or empty once the source is exhausted. */
+    Optional<Request> next();
+
+    @Override
+    default void close() {}
+}
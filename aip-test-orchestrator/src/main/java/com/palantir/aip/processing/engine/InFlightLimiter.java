@@ -0,0 +1,93 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.engine;
+
+import com.google.common.collect.TreeMultiset;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caps the number of requests in flight. When the cap is reached, senders with a higher priority are admitted before
+ * those with a lower one. Uncontended acquires and releases do not take a lock.
+ */
+final class InFlightLimiter {
+    private final int max;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // Not a monitor: a virtual thread waiting on a monitor would hold on to its carrier thread.
+    private final Lock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    // Guarded by lock.
+    private final TreeMultiset<Integer> waiting = TreeMultiset.create();
+    private volatile boolean contended = false;
+
+    InFlightLimiter(int max) {
+        this.max = max;
+    }
+
+    void acquire(int priority) throws InterruptedException {
+        if (!contended && tryAcquire()) {
+            return;
+        }
+        lock.lock();
+        try {
+            waiting.add(priority);
+            contended = true;
+            try {
+                while (waiting.lastEntry().getElement() > priority || !tryAcquire()) {
+                    changed.await();
+                }
+            } finally {
+                waiting.remove(priority);
+                contended = !waiting.isEmpty();
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release() {
+        inFlight.decrementAndGet();
+        if (contended) {
+            lock.lock();
+            try {
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /** Waits until every acquired slot has been released. */
+    void awaitIdle() throws InterruptedException {
+        lock.lock();
+        try {
+            // Registering as the lowest-priority waiter makes releases signal the lock.
+            waiting.add(Integer.MIN_VALUE);
+            contended = true;
+            try {
+                while (inFlight.get() > 0) {
+                    changed.await();
+                }
+            } finally {
+                waiting.remove(Integer.MIN_VALUE);
+                contended = !waiting.isEmpty();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean tryAcquire() {
+        for (int current = inFlight.get(); current < max; current = inFlight.get()) {
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.engine;
+
+import java.util.function.Consumer;
+
+/**
+ * Caps the frames a live stream has outstanding and applies its {@link FrameDropPolicy} to the frames captured while
+ * the cap is reached. Frames the gate discards are passed to the drop callback.
+ */
+final class LiveStreamGate {
+    private final int maxOutstanding;
+    private final FrameDropPolicy policy;
+    private final int keyframeInterval;
+    private final Consumer<Request> onDropped;
+
+    private int outstanding = 0;
+    private long captured = 0;
+    private boolean skipping = false;
+    private Request held;
+
+    LiveStreamGate(int maxOutstanding, FrameDropPolicy policy, int keyframeInterval, Consumer<Request> onDropped) {
+        this.maxOutstanding = maxOutstanding;
+        this.policy = policy;
+        this.keyframeInterval = keyframeInterval;
+        this.onDropped = onDropped;
+    }
+
+    /** Offers a newly captured frame, returning it if it should be sent now, or null if it was held or dropped. */
+    Request offer(Request request) {
+        Request dropped;
+        synchronized (this) {
+            boolean keyframe = captured++ % keyframeInterval == 0;
+            if (skipping && !keyframe) {
+                dropped = request;
+            } else if (outstanding < maxOutstanding) {
+                skipping = false;
+                outstanding++;
+                return request;
+            } else {
+                switch (policy) {
+                    case DROP_NEWEST:
+                        dropped = request;
+                        break;
+                    case REPLACE_WITH_LATEST:
+                        dropped = held;
+                        held = request;
+                        break;
+                    case SKIP_TO_KEYFRAME:
+                        skipping = true;
+                        dropped = request;
+                        break;
+                    default:
+                        throw new IllegalStateException("unknown frame drop policy: " + policy);
+                }
+            }
+        }
+        if (dropped != null) {
+            onDropped.accept(dropped);
+        }
+        return null;
+    }
+
+    /**
+     * Records that an outstanding frame has completed. Returns the held frame, which takes over the completed frame's
+     * slot and must be sent, or null if nothing is held.
+     */
+    synchronized Request complete() {
+        Request next = held;
+        held = null;
+        if (next == null) {
+            outstanding--;
+            return null;
+        }
+        return next;
+    }
+
+    /** Drops the frame still held once the stream has finished, so that it is never sent. */
+    void close() {
+        Request dropped;
+        synchronized (this) {
+            dropped = held;
+            held = null;
+        }
+        if (dropped != null) {
+            onDropped.accept(dropped);
+        }
+    }
+}
@@ -0,0 +1,384 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.engine;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.protobuf.Message;
+import io.grpc.Status;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Drives one or more streams of requests against a {@link ProcessorClient}.
+ *
+ * Every stream pulls requests from its own {@link FrameSource}, paced by its own {@link Scheduler}, on a dedicated
+ * sender thread. Outcomes are reported to the configured {@link LoadSink}s on the threads chosen by the
+ * {@link ExecutionModel}. Streams never share a lock; the only
+ * coordination between them is the optional cap on requests in flight.
+ *
+ * Live streams behave like a camera feed: frames are captured on schedule whether or not the processor keeps up, and
+ * a frame captured while the stream has its maximum number of frames outstanding is handled by its
+ * {@link FrameDropPolicy} instead of being queued.
+ */
+@SuppressWarnings("BanSystemOut")
+public final class LoadEngine {
+    private final ProcessorClient client;
+    private final List<StreamSpec> streams;
+    private final List<LoadSink> sinks;
+    private final BooleanSupplier stopCondition;
+    private final InFlightLimiter inFlight;
+    private final ExecutionModel executionModel;
+    private final Optional<ExecutorService> callbackThreads;
+    private final Executor callbacks;
+    private final long requestTimeoutNanos;
+    private final Optional<ScheduledExecutorService> timeouts;
+    private final OptionalLong startupNanos;
+    private final LongAdder sent = new LongAdder();
+
+    private LoadEngine(Builder builder) {
+        this.client = builder.client;
+        this.streams = builder.streams.build();
+        this.sinks = builder.sinks.build();
+        this.stopCondition = builder.stopCondition;
+        this.inFlight = new InFlightLimiter(builder.maxInFlight);
+        this.executionModel = builder.executionModel;
+        this.callbackThreads = executionModel.callbackThreads();
+        this.callbacks = callbackThreads.isPresent() ? callbackThreads.get() : MoreExecutors.directExecutor();
+        this.requestTimeoutNanos = builder.requestTimeoutNanos;
+        this.timeouts = requestTimeoutNanos > 0
+                ? Optional.of(Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                        .setNameFormat("orchestrator-request-timeouts")
+                        .setDaemon(true)
+                        .build()))
+                : Optional.empty();
+        this.startupNanos = builder.startupNanos;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Starts the client unless it has already been started, runs every stream until its source is exhausted or the
+     * stop condition holds, and waits for all outstanding responses before closing the client. Generated streams never
+     * run out, so without a stop condition this only returns once interrupted.
+     */
+    public void run() {
+        RequestEvent.register();
+        ManagementFactory.getThreadMXBean().resetPeakThreadCount();
+        long startupNanos = this.startupNanos.orElseGet(() -> {
+            long beginNanos = System.nanoTime();
+            client.start();
+            return System.nanoTime() - beginNanos;
+        });
+        long startNanos = System.nanoTime();
+        for (LoadSink sink : sinks) {
+            sink.onStart(startupNanos);
+        }
+
+        ExecutorService executor = executionModel.streamExecutor(streams.size());
+        List<Future<?>> tasks = new ArrayList<>();
+        streams.forEach(stream -> tasks.add(executor.submit(() -> {
+            runStream(stream);
+            return null;
+        })));
+
+        try {
+            System.out.println("Orchestrator: sending task...");
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+            // Wait for every outstanding response.
+            inFlight.awaitIdle();
+            if (callbackThreads.isPresent()) {
+                callbackThreads.get().shutdown();
+                callbackThreads.get().awaitTermination(1, TimeUnit.MINUTES);
+            }
+            double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+            System.out.println("Orchestrator: sent " + sent.sum() + " requests in " + seconds + "s ("
+                    + (sent.sum() / seconds) + " requests per second).");
+            System.out.println("Orchestrator: ran " + streams.size() + " streams on " + executionModel
+                    + " threads, with at most " + ManagementFactory.getThreadMXBean().getPeakThreadCount()
+                    + " platform threads alive.");
+            sinks.forEach(LoadSink::onComplete);
+            client.close();
+        } catch (InterruptedException | ExecutionException e) {
+            System.out.println("Orchestrator: interrupted. Closing channel.");
+            client.close();
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdownNow();
+            callbackThreads.ifPresent(ExecutorService::shutdownNow);
+            timeouts.ifPresent(ExecutorService::shutdownNow);
+        }
+    }
+
+    private void runStream(StreamSpec stream) throws InterruptedException {
+        LiveStreamGate gate = stream.maxOutstanding > 0
+                ? new LiveStreamGate(stream.maxOutstanding, stream.dropPolicy, stream.keyframeInterval, this::drop)
+                : null;
+        try (FrameSource source = stream.source) {
+            while (!Thread.currentThread().isInterrupted()) {
+                long dueNanos = stream.scheduler.awaitNext();
+                if (stopCondition.getAsBoolean()) {
+                    return;
+                }
+                RequestEvent build = new RequestEvent.Build();
+                build.begin();
+                Optional<Request> next = source.next();
+                if (next.isEmpty()) {
+                    return;
+                }
+                Request request = next.get();
+                build.end();
+                build.commitFor(request);
+                if (gate != null) {
+                    long captureNanos = System.nanoTime();
+                    for (LoadSink sink : sinks) {
+                        sink.onCaptured(request, captureNanos);
+                    }
+                    request = gate.offer(request);
+                    if (request == null) {
+                        continue;
+                    }
+                }
+                inFlight.acquire(stream.priority);
+                long sendNanos = send(request, gate);
+                for (LoadSink sink : sinks) {
+                    sink.onPaced(request, dueNanos, sendNanos);
+                }
+            }
+            throw new InterruptedException();
+        } finally {
+            if (gate != null) {
+                gate.close();
+            }
+        }
+    }
+
+    private void drop(Request request) {
+        for (LoadSink sink : sinks) {
+            sink.onDropped(request);
+        }
+    }
+
+    /** Frees the slot of a completed request, unless a held live frame takes it over; returns that frame. */
+    private Request complete(LiveStreamGate gate) {
+        Request held = gate == null ? null : gate.complete();
+        if (held == null) {
+            inFlight.release();
+        }
+        return held;
+    }
+
+    /** Sends {@code request} and returns the time it was sent. */
+    private long send(Request request, LiveStreamGate gate) {
+        sent.increment();
+        long sendNanos = System.nanoTime();
+        for (LoadSink sink : sinks) {
+            sink.onSent(request, sendNanos);
+        }
+
+        RequestEvent sendEvent = new RequestEvent.Send();
+        sendEvent.begin();
+        ListenableFuture<? extends Message> result;
+        try {
+            result = client.send(request);
+        } catch (RuntimeException e) {
+            result = Futures.immediateFailedFuture(e);
+        }
+        if (timeouts.isPresent()) {
+            // Cancels the request on timeout, so that a late response is discarded by the client.
+            result = Futures.withTimeout(result, requestTimeoutNanos, TimeUnit.NANOSECONDS, timeouts.get());
+        }
+        sendEvent.end();
+        sendEvent.commitFor(request);
+
+        Futures.addCallback(
+                result,
+                new FutureCallback<Message>() {
+                    @Override
+                    public void onSuccess(Message response) {
+                        long latencyNanos = System.nanoTime() - sendNanos;
+                        new RequestEvent.Response(latencyNanos).commitFor(request);
+                        // The slot is released last, so that whoever waits for it sees the sinks up to date.
+                        for (LoadSink sink : sinks) {
+                            sink.onResponse(request, response, latencyNanos);
+                        }
+                        Request held = complete(gate);
+                        if (held != null) {
+                            send(held, gate);
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Throwable throwable) {
+                        long latencyNanos = System.nanoTime() - sendNanos;
+                        new RequestEvent.Failure(latencyNanos, isTimeout(throwable), throwable).commitFor(request);
+                        for (LoadSink sink : sinks) {
+                            sink.onFailure(request, throwable, latencyNanos);
+                        }
+                        Request held = complete(gate);
+                        if (held != null) {
+                            send(held, gate);
+                        }
+                    }
+                },
+                callbacks);
+        return sendNanos;
+    }
+
+    private static boolean isTimeout(Throwable throwable) {
+        return throwable instanceof TimeoutException
+                || Status.fromThrowable(throwable).getCode() == Status.Code.DEADLINE_EXCEEDED;
+    }
+
+    private static final class StreamSpec {
+        private final FrameSource source;
+        private final Scheduler scheduler;
+        private final int maxOutstanding;
+        private final FrameDropPolicy dropPolicy;
+        private final int keyframeInterval;
+        private final int priority;
+
+        private StreamSpec(
+                FrameSource source,
+                Scheduler scheduler,
+                int maxOutstanding,
+                FrameDropPolicy dropPolicy,
+                int keyframeInterval,
+                int priority) {
+            this.source = source;
+            this.scheduler = scheduler;
+            this.maxOutstanding = maxOutstanding;
+            this.dropPolicy = dropPolicy;
+            this.keyframeInterval = keyframeInterval;
+            this.priority = priority;
+        }
+    }
+
+    public static final class Builder {
+        private ProcessorClient client;
+        private final ImmutableList.Builder<StreamSpec> streams = ImmutableList.builder();
+        private final ImmutableList.Builder<LoadSink> sinks = ImmutableList.builder();
+        private int maxInFlight = Integer.MAX_VALUE;
+        private BooleanSupplier stopCondition = () -> false;
+        private ExecutionModel executionModel = ExecutionModel.PLATFORM;
+        private long requestTimeoutNanos = 0;
+        private OptionalLong startupNanos = OptionalLong.empty();
+
+        private Builder() {}
+
+        public Builder client(ProcessorClient value) {
+            this.client = value;
+            return this;
+        }
+
+        public Builder addStream(FrameSource source, Scheduler scheduler) {
+            return addStream(source, scheduler, 0);
+        }
+
+        /**
+         * Adds a stream whose requests are admitted before those of lower-{@code priority} streams while the
+         * {@link #maxInFlight} cap is reached.
+         */
+        public Builder addStream(FrameSource source, Scheduler scheduler, int priority) {
+            streams.add(new StreamSpec(source, scheduler, 0, FrameDropPolicy.DROP_NEWEST, 1, priority));
+            return this;
+        }
+
+        /**
+         * Adds a live stream that has at most {@code maxOutstanding} frames awaiting a response and applies
+         * {@code policy} to frames captured beyond that. Every {@code keyframeInterval}th frame is a keyframe.
+         */
+        public Builder addLiveStream(
+                FrameSource source,
+                Scheduler scheduler,
+                int maxOutstanding,
+                FrameDropPolicy policy,
+                int keyframeInterval) {
+            if (maxOutstanding < 1) {
+                throw new IllegalArgumentException("maximum outstanding frames must be positive: " + maxOutstanding);
+            }
+            if (keyframeInterval < 1) {
+                throw new IllegalArgumentException("keyframe interval must be positive: " + keyframeInterval);
+            }
+            streams.add(new StreamSpec(source, scheduler, maxOutstanding, policy, keyframeInterval, 0));
+            return this;
+        }
+
+        public Builder addSink(LoadSink sink) {
+            sinks.add(sink);
+            return this;
+        }
+
+        /**
+         * Caps the number of requests awaiting a response; senders block once the cap is reached and are admitted in
+         * order of stream priority.
+         */
+        public Builder maxInFlight(int value) {
+            this.maxInFlight = value;
+            return this;
+        }
+
+        /** Stops every stream, as if its source were exhausted, once {@code value} returns true. */
+        public Builder stopWhen(BooleanSupplier value) {
+            this.stopCondition = value;
+            return this;
+        }
+
+        /** Runs stream senders and response callbacks on the threads of {@code value}. */
+        public Builder executionModel(ExecutionModel value) {
+            this.executionModel = value;
+            return this;
+        }
+
+        /**
+         * Fails every request that has not been answered within {@code nanos} with a {@link TimeoutException}, which
+         * also frees its slot. Requests never time out if {@code nanos} is zero.
+         */
+        public Builder requestTimeout(long nanos) {
+            if (nanos < 0) {
+                throw new IllegalArgumentException("request timeout must not be negative: " + nanos);
+            }
+            this.requestTimeoutNanos = nanos;
+            return this;
+        }
+
+        /**
+         * Declares that the client has already completed its startup handshake, which took {@code nanos}, so that the
+         * run starts sending at once instead of starting the client itself.
+         */
+        public Builder clientStarted(long nanos) {
+            this.startupNanos = OptionalLong.of(nanos);
+            return this;
+        }
+
+        public LoadEngine build() {
+            if (client == null) {
+                throw new IllegalStateException("LoadEngine requires a client");
+            }
+            return new LoadEngine(this);
+        }
+    }
+}
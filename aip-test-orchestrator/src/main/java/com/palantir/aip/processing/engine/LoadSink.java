@@ -0,0 +1,37 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.engine;
+
+import com.google.protobuf.Message;
+
+/**
+ * Observes the requests sent by a {@link LoadEngine} and their outcomes. Callbacks arrive concurrently from sender
+ * and gRPC threads, so implementations must be thread-safe.
+ */
+public interface LoadSink {
+    /** Called once the client has started, before the first request is sent. */
+    default void onStart(long startupNanos) {}
+
+    /** Called when a live stream captures a frame, before the frame is sent or dropped. */
+    default void onCaptured(Request request, long captureNanos) {}
+
+    /** Called when a live stream drops a captured frame instead of sending it. */
+    default void onDropped(Request request) {}
+
+    default void onSent(Request request, long sendNanos) {}
+
+    /**
+     * Called after a stream sends a scheduled request, with the time its scheduler intended it to be sent. Live frames
+     * that were held back and sent later are not reported.
+     */
+    default void onPaced(Request request, long dueNanos, long sendNanos) {}
+
+    default void onResponse(Request request, Message response, long latencyNanos) {}
+
+    default void onFailure(Request request, Throwable throwable, long latencyNanos) {}
+
+    /** Called once after every stream has finished and all outstanding responses have arrived. */
+    default void onComplete() {}
+}
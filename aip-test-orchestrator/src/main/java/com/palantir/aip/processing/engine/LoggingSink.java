@@ -0,0 +1,32 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.engine;
+
+import com.google.protobuf.Message;
+
+/** Prints every request and response to standard out. */
+@SuppressWarnings("BanSystemOut")
+public final class LoggingSink implements LoadSink {
+    @Override
+    public void onSent(Request request, long sendNanos) {
+        System.out.println("Sending " + request.kind() + " request. Stream id: " + request.streamId()
+                + ", Request id: " + request.id());
+    }
+
+    @Override
+    public void onResponse(Request request, Message response, long latencyNanos) {
+        System.out.println("Received response. Stream id: " + request.streamId() + ", Request id: " + request.id());
+        System.out.println("Response object:");
+        System.out.println(response);
+        System.out.println("----------- End response for request id " + request.id() + " -----------");
+    }
+
+    @Override
+    public void onFailure(Request request, Throwable throwable, long latencyNanos) {
+        System.out.println("Orchestrator request failed. Stream id: " + request.streamId() + ", Request id: "
+                + request.id());
+        System.out.println(throwable.getMessage());
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.engine;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.protobuf.Message;
+import com.palantir.aip.processing.replay.RecordedRequest;
+import com.palantir.aip.proto.processor.v3.ProcessorV3Protos;
+import com.palantir.aip.proto.types.PluginTypes;
+
+/**
+ * A configured processor, as seen by the {@link LoadEngine}. Implementations adapt a protocol-specific client and
+ * must allow {@link #send} to be called concurrently from several streams.
+ */
+public interface ProcessorClient {
+    PluginTypes.ImageFormat imageFormat();
+
+    boolean supportsRawImagery();
+
+    /** Whether the processor accepts {@code kind} requests; requests are only built for supported kinds. */
+    boolean supports(RequestKind kind);
+
+    /** Performs any handshake that has to complete before the first frame is sent. */
+    void start();
+
+    Request video(long streamId, ProcessorV3Protos.VideoRequest video);
+
+    Request imagery(long streamId, ProcessorV3Protos.ImageryRequest imagery);
+
+    /** Parses a request that was written to a request log by a client speaking the same protocol. */
+    Request fromRecording(RecordedRequest recorded);
+
+    ListenableFuture<? extends Message> send(Request request);
+
+    void close();
+}
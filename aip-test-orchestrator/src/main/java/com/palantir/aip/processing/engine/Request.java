@@ -0,0 +1,40 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.engine;
+
+import com.google.protobuf.Message;
+
+/** A protocol-specific request message together with the identifiers the engine needs to track it. */
+public final class Request {
+    private final long id;
+    private final long streamId;
+    private final RequestKind kind;
+    private final Message message;
+
+    public Request(long id, long streamId, RequestKind kind, Message message) {
+        this.id = id;
+        this.streamId = streamId;
+        this.kind = kind;
+        this.message = message;
+    }
+
+    /** The V3 request id, or the V2 frame id. */
+    public long id() {
+        return id;
+    }
+
+    public long streamId() {
+        return streamId;
+    }
+
+    public RequestKind kind() {
+        return kind;
+    }
+
+    /** The {@code InferenceRequest} or {@code ProcessRequest} sent on the wire. */
+    public Message message() {
+        return message;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.engine;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder events for the lifecycle of a {@link Request}, so that orchestrator latency can be lined up with GC
+ * pauses, safepoints and thread stalls in the same recording. The request fields are only computed for events that
+ * are enabled, so disabled events cost next to nothing on the send path.
+ */
+@Category({"AIP Orchestrator", "Requests"})
+@StackTrace(false)
+abstract class RequestEvent extends Event {
+    @Label("Request Id")
+    @Description("The V3 request id, or the V2 frame id")
+    long requestId;
+
+    @Label("Stream Id")
+    long streamId;
+
+    @Label("Kind")
+    String kind;
+
+    @Label("Payload Size")
+    @Description("The serialized size of the request message")
+    @DataAmount
+    long payloadSize;
+
+    /**
+     * Registers the events with the flight recorder. The first registration initializes the recorder, which takes
+     * hundreds of milliseconds and would otherwise stall the first request.
+     */
+    static void register() {
+        FlightRecorder.register(Build.class);
+        FlightRecorder.register(Send.class);
+        FlightRecorder.register(Response.class);
+        FlightRecorder.register(Failure.class);
+    }
+
+    /** Commits the event for {@code request}, if enabled. Duration events must be ended first. */
+    final void commitFor(Request request) {
+        if (shouldCommit()) {
+            requestId = request.id();
+            streamId = request.streamId();
+            kind = request.kind().name();
+            payloadSize = request.message().getSerializedSize();
+            computeFields();
+            commit();
+        }
+    }
+
+    /** Computes the fields of a subclass that are too costly to compute for a disabled event. */
+    void computeFields() {}
+
+    @Name("com.palantir.aip.orchestrator.RequestBuild")
+    @Label("Request Build")
+    @Description("Building a request, including writing its frame to the shared images directory")
+    static final class Build extends RequestEvent {}
+
+    @Name("com.palantir.aip.orchestrator.RequestSend")
+    @Label("Request Send")
+    @Description("Handing a request to the gRPC client")
+    static final class Send extends RequestEvent {}
+
+    @Name("com.palantir.aip.orchestrator.RequestResponse")
+    @Label("Request Response")
+    @Description("A response received from the processor")
+    static final class Response extends RequestEvent {
+        @Label("Latency")
+        @Timespan
+        long latency;
+
+        Response(long latencyNanos) {
+            this.latency = latencyNanos;
+        }
+    }
+
+    @Name("com.palantir.aip.orchestrator.RequestFailure")
+    @Label("Request Failure")
+    @Description("A request that failed or timed out")
+    static final class Failure extends RequestEvent {
+        @Label("Latency")
+        @Timespan
+        long latency;
+
+        @Label("Timeout")
+        boolean timeout;
+
+        @Label("Error")
+        String error;
+
+        // Not recorded; formatted into the error field only if the event is committed.
+        private final transient Throwable throwable;
+
+        Failure(long latencyNanos, boolean timeout, Throwable throwable) {
+            this.latency = latencyNanos;
+            this.timeout = timeout;
+            this.throwable = throwable;
+        }
+
+        @Override
+        void computeFields() {
+            error = throwable.toString();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.engine;
+
+/** The kind of work carried by a {@link Request}. */
+public enum RequestKind {
+    VIDEO,
+    IMAGERY
+}
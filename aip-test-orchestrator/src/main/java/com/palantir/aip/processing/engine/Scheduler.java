@@ -0,0 +1,14 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.engine;
+
+/** Decides when a stream sends its next request. */
+public interface Scheduler {
+    /**
+     * Blocks until the next request of the stream is due and returns the {@link System#nanoTime()} at which it was
+     * due, so that the engine can measure how late it was actually sent.
+     */
+    long awaitNext() throws InterruptedException;
+}
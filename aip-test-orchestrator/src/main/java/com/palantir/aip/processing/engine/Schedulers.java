@@ -0,0 +1,123 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.engine;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+public final class Schedulers {
+    /**
+     * How long before a deadline {@link #awaitNanoTime} stops parking and spins instead. Parking typically overshoots
+     * by tens of microseconds, which is a large fraction of the period at kHz rates.
+     */
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private Schedulers() {}
+
+    /** Sends requests back to back. */
+    public static Scheduler unpaced() {
+        return System::nanoTime;
+    }
+
+    /** Sends the first request immediately and then one request every {@code periodNanos}. */
+    public static Scheduler fixedRate(long periodNanos) {
+        return fixedRate(periodNanos, 0);
+    }
+
+    /**
+     * Sends the first request {@code initialDelayNanos} after the first call and then one request every
+     * {@code periodNanos}. Staggering the initial delay spreads several streams evenly over the period.
+     */
+    public static Scheduler fixedRate(long periodNanos, long initialDelayNanos) {
+        return new Scheduler() {
+            private long startNanos;
+            private long sent = -1;
+
+            @Override
+            public long awaitNext() throws InterruptedException {
+                if (sent < 0) {
+                    startNanos = System.nanoTime() + initialDelayNanos;
+                    sent = 0;
+                }
+                long dueNanos = startNanos + sent * periodNanos;
+                awaitNanoTime(dueNanos);
+                sent++;
+                return dueNanos;
+            }
+        };
+    }
+
+    /**
+     * Sends requests as a Poisson process with one request every {@code meanPeriodNanos} on average, starting
+     * {@code initialDelayNanos} after the first call.
+     */
+    public static Scheduler poisson(long meanPeriodNanos, long initialDelayNanos) {
+        return new Scheduler() {
+            private final SplittableRandom random = new SplittableRandom();
+            private long dueNanos;
+            private boolean started = false;
+
+            @Override
+            public long awaitNext() throws InterruptedException {
+                if (!started) {
+                    dueNanos = System.nanoTime() + initialDelayNanos;
+                    started = true;
+                } else {
+                    // Inverse transform sampling of the exponential distribution; 1 - u is never zero.
+                    dueNanos += (long) (-Math.log(1 - random.nextDouble()) * meanPeriodNanos);
+                }
+                awaitNanoTime(dueNanos);
+                return dueNanos;
+            }
+        };
+    }
+
+    /**
+     * Sends bursts of {@code burstSize} back-to-back requests, one burst every {@code burstSize * meanPeriodNanos},
+     * starting {@code initialDelayNanos} after the first call.
+     */
+    public static Scheduler bursts(long meanPeriodNanos, int burstSize, long initialDelayNanos) {
+        if (burstSize < 1) {
+            throw new IllegalArgumentException("burst size must be positive: " + burstSize);
+        }
+        return new Scheduler() {
+            private long startNanos;
+            private long sent = -1;
+
+            @Override
+            public long awaitNext() throws InterruptedException {
+                if (sent < 0) {
+                    startNanos = System.nanoTime() + initialDelayNanos;
+                    sent = 0;
+                }
+                long dueNanos = startNanos + (sent / burstSize) * burstSize * meanPeriodNanos;
+                awaitNanoTime(dueNanos);
+                sent++;
+                return dueNanos;
+            }
+        };
+    }
+
+    /**
+     * Waits until {@link System#nanoTime()} reaches {@code deadlineNanos}: parks the calling thread until shortly
+     * before the deadline and spins for the rest, for sub-millisecond accuracy without burning a core between sends.
+     * Virtual threads park all the way instead, since a spinning virtual thread keeps others off its carrier thread.
+     */
+    public static void awaitNanoTime(long deadlineNanos) throws InterruptedException {
+        long spinNanos = ExecutionModel.isVirtualThread() ? 0 : SPIN_NANOS;
+        for (long remaining = deadlineNanos - System.nanoTime();
+                remaining > spinNanos;
+                remaining = deadlineNanos - System.nanoTime()) {
+            LockSupport.parkNanos(remaining - spinNanos);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        while (deadlineNanos - System.nanoTime() > 0) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.engine;
+
+import com.palantir.aip.processing.util.ProcessorUtils;
+import com.palantir.aip.proto.types.PluginTypes;
+import java.util.Optional;
+
+/** Endlessly generates requests that reference the bundled test image. */
+public final class TestImageSource implements FrameSource {
+    private final ProcessorClient client;
+    private final RequestKind kind;
+    private final PluginTypes.Image image;
+    private final long streamId;
+
+    public TestImageSource(ProcessorClient client, RequestKind kind, PluginTypes.Image image, long streamId) {
+        this.client = client;
+        this.kind = kind;
+        this.image = image;
+        this.streamId = streamId;
+    }
+
+    @Override
+    public Optional<Request> next() {
+        return Optional.of(request(client, kind, image, streamId));
+    }
+
+    /** Builds a {@code kind} request for {@code streamId} that references {@code image}. */
+    public static Request request(ProcessorClient client, RequestKind kind, PluginTypes.Image image, long streamId) {
+        switch (kind) {
+            case VIDEO:
+                return client.video(
+                        streamId,
+                        ProcessorUtils.buildTestVideoRequest(image, ProcessorUtils.constructSampleUasMetadata()));
+            case IMAGERY:
+                return client.imagery(
+                        streamId, ProcessorUtils.buildTestImageryRequest(image, client.supportsRawImagery()));
+            default:
+                throw new IllegalArgumentException("unknown request kind: " + kind);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.frames;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.palantir.aip.processing.engine.FrameSource;
+import com.palantir.aip.processing.engine.ProcessorClient;
+import com.palantir.aip.processing.engine.Request;
+import com.palantir.aip.processing.engine.RequestKind;
+import com.palantir.aip.processing.engine.TestImageSource;
+import com.palantir.aip.processing.util.ProcessorUtils;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Endlessly generates requests that each reference their own copy of the test image in a {@link FrameFileStore}.
+ * Frames are written a few requests ahead of the sender so that writing them stays off the send path.
+ */
+public final class FrameFileSource implements FrameSource {
+    private final FrameFileStore store;
+    private final ProcessorClient client;
+    private final RequestKind kind;
+    private final long streamId;
+    private final int writeAhead;
+    private final Deque<ListenableFuture<Path>> pending = new ArrayDeque<>();
+
+    public FrameFileSource(
+            FrameFileStore store, ProcessorClient client, RequestKind kind, long streamId, int writeAhead) {
+        this.store = store;
+        this.client = client;
+        this.kind = kind;
+        this.streamId = streamId;
+        this.writeAhead = writeAhead;
+    }
+
+    @Override
+    public Optional<Request> next() {
+        try {
+            // Only block on the quota when nothing has been written ahead, otherwise frames held by this source could
+            // be the ones it is waiting for.
+            if (pending.isEmpty()) {
+                pending.add(store.write());
+            }
+            while (pending.size() < writeAhead) {
+                Optional<ListenableFuture<Path>> frame = store.tryWrite();
+                if (frame.isEmpty()) {
+                    break;
+                }
+                pending.add(frame.get());
+            }
+            Path frame = pending.remove().get();
+            Request request = TestImageSource.request(client, kind, ProcessorUtils.testImageAt(frame), streamId);
+            store.track(request, frame);
+            return Optional.of(request);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("could not write frame file", e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        pending.forEach(store::discard);
+        pending.clear();
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.frames;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.protobuf.Message;
+import com.palantir.aip.processing.engine.LoadSink;
+import com.palantir.aip.processing.engine.Request;
+import com.palantir.aip.processing.stats.Durations;
+import com.palantir.aip.processing.util.ProcessorUtils;
+import com.palantir.aip.proto.types.PluginTypes;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes a separate copy of the test image for every frame, so that the processor reads a fresh file per request
+ * rather than one file that stays in the page cache.
+ *
+ * <p>Files are written by a pool of background writers to a hidden partial file and atomically renamed into place, so
+ * the processor never sees a partly written frame. Each file is deleted as soon as the request that references it
+ * completes or is dropped. At most {@code quotaBytes} of frames exist at once; senders block in {@link #write()} while
+ * the quota is used up, which slows the run down to the rate at which the processor releases frames.
+ */
+@SuppressWarnings("BanSystemOut")
+public final class FrameFileStore implements LoadSink, AutoCloseable {
+    private final Path dir;
+    private final String prefix;
+    private final String extension;
+    private final ByteBuffer image;
+    private final int quotaFrames;
+    private final Semaphore quota;
+    private final ListeningExecutorService writers;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Long, Path> framesByRequest = new ConcurrentHashMap<>();
+    // Every frame file on disk, mapped to whether its delete has been queued. A frame stays here until it is deleted.
+    private final Map<Path, Boolean> onDisk = new ConcurrentHashMap<>();
+    private final AtomicInteger files = new AtomicInteger();
+    private final AtomicInteger peakFiles = new AtomicInteger();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder blockedNanos = new LongAdder();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    public FrameFileStore(Path dir, PluginTypes.ImageFormat format, long quotaBytes, int writerThreads) {
+        if (writerThreads < 1) {
+            throw new IllegalArgumentException("writer count must be positive: " + writerThreads);
+        }
+        byte[] bytes = ProcessorUtils.encodeTestImage(format);
+        long frames = quotaBytes / bytes.length;
+        if (frames < 1) {
+            throw new IllegalArgumentException("frame store quota of " + quotaBytes + " bytes is smaller than a single "
+                    + bytes.length + " byte frame");
+        }
+        this.dir = dir;
+        this.prefix = "frame-" + ProcessHandle.current().pid() + "-";
+        this.extension = ProcessorUtils.imageExtension(format);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        this.image = buffer.asReadOnlyBuffer();
+        this.quotaFrames = (int) Math.min(frames, Integer.MAX_VALUE);
+        this.quota = new Semaphore(quotaFrames);
+        this.writers = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(
+                writerThreads,
+                new ThreadFactoryBuilder()
+                        .setNameFormat("frame-writer-%d")
+                        .setDaemon(true)
+                        .build()));
+    }
+
+    /** The number of frames that fit in the quota. */
+    public int quotaFrames() {
+        return quotaFrames;
+    }
+
+    /** Writes a new frame file once the quota allows it, blocking until then. */
+    public ListenableFuture<Path> write() throws InterruptedException {
+        long start = System.nanoTime();
+        quota.acquire();
+        blockedNanos.add(System.nanoTime() - start);
+        return submitWrite();
+    }
+
+    /** Writes a new frame file if the quota currently allows it. */
+    public Optional<ListenableFuture<Path>> tryWrite() {
+        return quota.tryAcquire() ? Optional.of(submitWrite()) : Optional.empty();
+    }
+
+    /** Deletes the frame file of {@code request} once the request completes or is dropped. */
+    public void track(Request request, Path frame) {
+        framesByRequest.put(request.id(), frame);
+    }
+
+    /** Deletes a frame that will never be sent, once it has been written. */
+    public void discard(ListenableFuture<Path> frame) {
+        Futures.addCallback(
+                frame,
+                new FutureCallback<Path>() {
+                    @Override
+                    public void onSuccess(Path path) {
+                        release(path);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable throwable) {
+                        // A failed write has already given back its quota.
+                    }
+                },
+                MoreExecutors.directExecutor());
+    }
+
+    @Override
+    public void onDropped(Request request) {
+        release(request);
+    }
+
+    @Override
+    public void onResponse(Request request, Message response, long latencyNanos) {
+        release(request);
+    }
+
+    @Override
+    public void onFailure(Request request, Throwable throwable, long latencyNanos) {
+        release(request);
+    }
+
+    /** Stops writing, deletes every remaining frame file and prints a summary, unless already closed. */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        // Lets queued writes and deletes finish, so that every written frame is either deleted by its own task or still
+        // in onDisk for the sweep below.
+        writers.shutdown();
+        try {
+            if (!writers.awaitTermination(10, TimeUnit.SECONDS)) {
+                writers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            writers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        onDisk.keySet().forEach(this::delete);
+        System.out.println("Orchestrator: wrote " + written.sum() + " frame files, at most " + peakFiles.get()
+                + " of " + quotaFrames + " on disk at once; senders waited "
+                + Durations.format(blockedNanos.sum()) + " for the frame store quota.");
+    }
+
+    private ListenableFuture<Path> submitWrite() {
+        long id = sequence.getAndIncrement();
+        try {
+            return writers.submit(() -> writeFrame(id));
+        } catch (RuntimeException e) {
+            quota.release();
+            throw e;
+        }
+    }
+
+    private Path writeFrame(long id) throws IOException {
+        Path partial = dir.resolve("." + prefix + id + extension + ".partial");
+        Path frame = dir.resolve(prefix + id + extension);
+        try {
+            try (FileChannel channel =
+                    FileChannel.open(partial, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                ByteBuffer bytes = image.duplicate();
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+            }
+            Files.move(partial, frame, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(partial);
+            quota.release();
+            throw e;
+        }
+        onDisk.put(frame, false);
+        written.increment();
+        peakFiles.accumulateAndGet(files.incrementAndGet(), Math::max);
+        return frame;
+    }
+
+    private void release(Request request) {
+        Path frame = framesByRequest.remove(request.id());
+        if (frame != null) {
+            release(frame);
+        }
+    }
+
+    private void release(Path frame) {
+        if (!onDisk.replace(frame, false, true)) {
+            return;
+        }
+        try {
+            // Deleting is cheaper than writing, but still a syscall that should not hold up gRPC callback threads.
+            writers.execute(() -> delete(frame));
+        } catch (RejectedExecutionException e) {
+            // The store has closed.
+            delete(frame);
+        }
+    }
+
+    /** Deletes a frame file and gives back its quota, unless it has already been deleted. */
+    private void delete(Path frame) {
+        deleteQuietly(frame);
+        if (onDisk.remove(frame) != null) {
+            files.decrementAndGet();
+            quota.release();
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.out.println("Orchestrator: could not delete frame file " + path + ": " + e);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.orchestrators;
+
+import com.google.common.collect.ImmutableList;
+import com.palantir.aip.processing.engine.RequestKind;
+import java.util.List;
+
+/**
+ * Request kinds that a mixed run interleaves on one processor. The total rate is split between the kinds by weight;
+ * while the in-flight cap is reached, requests of a higher-priority kind are sent first.
+ */
+public final class MixedWorkload {
+    private final double framesPerSecond;
+    private final List<Share> shares;
+    private final int maxInFlight;
+    private final double totalWeight;
+
+    private MixedWorkload(Builder builder) {
+        this.framesPerSecond = builder.framesPerSecond;
+        this.shares = builder.shares.build();
+        this.maxInFlight = builder.maxInFlight;
+        this.totalWeight = shares.stream().mapToDouble(Share::weight).sum();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public List<Share> shares() {
+        return shares;
+    }
+
+    public int maxInFlight() {
+        return maxInFlight;
+    }
+
+    /** The rate at which {@code share} is sent: its weighted part of the total rate. */
+    public double framesPerSecond(Share share) {
+        return framesPerSecond * share.weight() / totalWeight;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder description = new StringBuilder();
+        for (Share share : shares) {
+            description.append(description.length() == 0 ? "" : ", ")
+                    .append(share.kind().name().toLowerCase())
+                    .append(String.format(" %.2f frames per second", framesPerSecond(share)))
+                    .append(" (priority ")
+                    .append(share.priority())
+                    .append(')');
+        }
+        return description.toString();
+    }
+
+    public static final class Share {
+        private final RequestKind kind;
+        private final double weight;
+        private final int priority;
+
+        private Share(RequestKind kind, double weight, int priority) {
+            this.kind = kind;
+            this.weight = weight;
+            this.priority = priority;
+        }
+
+        public RequestKind kind() {
+            return kind;
+        }
+
+        public double weight() {
+            return weight;
+        }
+
+        public int priority() {
+            return priority;
+        }
+    }
+
+    public static final class Builder {
+        private double framesPerSecond;
+        private final ImmutableList.Builder<Share> shares = ImmutableList.builder();
+        private int maxInFlight = Integer.MAX_VALUE;
+
+        private Builder() {}
+
+        /** The combined rate of every kind in the workload. */
+        public Builder framesPerSecond(double value) {
+            this.framesPerSecond = value;
+            return this;
+        }
+
+        public Builder add(RequestKind kind, double weight, int priority) {
+            if (!(weight > 0)) {
+                throw new IllegalArgumentException("weight of " + kind + " must be positive: " + weight);
+            }
+            shares.add(new Share(kind, weight, priority));
+            return this;
+        }
+
+        /** Caps the number of requests of any kind awaiting a response. */
+        public Builder maxInFlight(int value) {
+            this.maxInFlight = value;
+            return this;
+        }
+
+        public MixedWorkload build() {
+            if (!(framesPerSecond > 0)) {
+                throw new IllegalArgumentException("frames per second must be positive: " + framesPerSecond);
+            }
+            if (maxInFlight < 1) {
+                throw new IllegalArgumentException("maximum in flight must be positive: " + maxInFlight);
+            }
+            MixedWorkload workload = new MixedWorkload(this);
+            if (workload.shares.isEmpty()) {
+                throw new IllegalArgumentException("a mixed workload needs at least one request kind");
+            }
+            return workload;
+        }
+    }
+}
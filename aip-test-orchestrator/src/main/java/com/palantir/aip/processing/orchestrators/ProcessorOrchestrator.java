@@ -0,0 +1,254 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.orchestrators;
+
+import com.palantir.aip.processing.control.AdaptiveRateController;
+import com.palantir.aip.processing.engine.ArrivalProcess;
+import com.palantir.aip.processing.engine.ExecutionModel;
+import com.palantir.aip.processing.engine.FrameDropPolicy;
+import com.palantir.aip.processing.engine.FrameSource;
+import com.palantir.aip.processing.engine.LoadEngine;
+import com.palantir.aip.processing.engine.LoadSink;
+import com.palantir.aip.processing.engine.ProcessorClient;
+import com.palantir.aip.processing.engine.RequestKind;
+import com.palantir.aip.processing.engine.Scheduler;
+import com.palantir.aip.processing.engine.TestImageSource;
+import com.palantir.aip.processing.frames.FrameFileSource;
+import com.palantir.aip.processing.frames.FrameFileStore;
+import com.palantir.aip.processing.replay.RecordType;
+import com.palantir.aip.processing.replay.RecordingSink;
+import com.palantir.aip.processing.replay.ReplaySource;
+import com.palantir.aip.processing.replay.ReplayTiming;
+import com.palantir.aip.processing.replay.RequestLogWriter;
+import com.palantir.aip.processing.util.ProcessorUtils;
+import com.palantir.aip.proto.types.PluginTypes;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
+
+/** Protocol-independent wiring of the {@link LoadEngine} shared by the V2 and V3 orchestrators. */
+public abstract class ProcessorOrchestrator {
+    private final Path sharedImagesDir;
+    private final ProcessorClient processor;
+    private final Optional<RequestLogWriter> recorder;
+    private final RecordType recordType;
+    private final List<LoadSink> sinks = new ArrayList<>();
+    private final List<FrameFileStore> frameStores = new ArrayList<>();
+
+    private BooleanSupplier stopCondition = () -> false;
+    private int streams = 1;
+    private int maxOutstandingFrames = 0;
+    private FrameDropPolicy dropPolicy = FrameDropPolicy.DROP_NEWEST;
+    private int keyframeInterval = 1;
+    private ArrivalProcess arrivals = ArrivalProcess.CONSTANT;
+    private int burstSize = 1;
+    private long frameStoreQuotaBytes = 0;
+    private int frameWriters = 0;
+    private ExecutionModel executionModel = ExecutionModel.PLATFORM;
+    private long requestTimeoutNanos = 0;
+    private OptionalLong startupNanos = OptionalLong.empty();
+
+    ProcessorOrchestrator(
+            Path sharedImagesDir,
+            ProcessorClient processor,
+            Optional<RequestLogWriter> recorder,
+            RecordType recordType) {
+        this.sharedImagesDir = sharedImagesDir;
+        this.processor = processor;
+        this.recorder = recorder;
+        this.recordType = recordType;
+    }
+
+    /** Reports every request and response of subsequent runs to {@code sink}, in addition to the defaults. */
+    public final ProcessorOrchestrator addSink(LoadSink sink) {
+        sinks.add(sink);
+        return this;
+    }
+
+    /** Ends subsequent runs once any of the given conditions holds, instead of running until interrupted. */
+    public final ProcessorOrchestrator stopWhen(BooleanSupplier condition) {
+        BooleanSupplier previous = stopCondition;
+        this.stopCondition = () -> previous.getAsBoolean() || condition.getAsBoolean();
+        return this;
+    }
+
+    /** Splits subsequent generated runs across {@code count} concurrent streams that share the requested rate. */
+    public final ProcessorOrchestrator streams(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("stream count must be positive: " + count);
+        }
+        this.streams = count;
+        return this;
+    }
+
+    /**
+     * Spreads the requests of subsequent generated runs over time according to {@code process}, keeping their mean
+     * rate. {@code burst} is the number of requests per burst for {@link ArrivalProcess#BURST}.
+     */
+    public final ProcessorOrchestrator arrivals(ArrivalProcess process, int burst) {
+        this.arrivals = process;
+        this.burstSize = burst;
+        return this;
+    }
+
+    /**
+     * Runs subsequent fixed-rate streams as live streams, each with at most {@code maxOutstanding} frames awaiting a
+     * response; frames captured beyond that are handled by {@code policy} instead of queueing behind the processor.
+     */
+    public final ProcessorOrchestrator liveVideo(int maxOutstanding, FrameDropPolicy policy, int keyframes) {
+        this.maxOutstandingFrames = maxOutstanding;
+        this.dropPolicy = policy;
+        this.keyframeInterval = keyframes;
+        return this;
+    }
+
+    /**
+     * Gives every frame of subsequent generated runs its own image file, written in the background by {@code writers}
+     * threads and deleted once its request completes. At most {@code quotaBytes} of frames are kept on disk at once;
+     * beyond that the streams wait for frames to be released.
+     */
+    public final ProcessorOrchestrator perFrameFiles(long quotaBytes, int writers) {
+        if (recorder.isPresent()) {
+            throw new IllegalStateException("per-frame image files are deleted after use and cannot be recorded");
+        }
+        this.frameStoreQuotaBytes = quotaBytes;
+        this.frameWriters = writers;
+        return this;
+    }
+
+    /** Runs the stream senders and response callbacks of subsequent runs on the threads of {@code model}. */
+    public final ProcessorOrchestrator executionModel(ExecutionModel model) {
+        model.checkSupported();
+        this.executionModel = model;
+        return this;
+    }
+
+    /** Fails requests of subsequent runs that have not been answered within {@code nanos}; zero means never. */
+    public final ProcessorOrchestrator requestTimeout(long nanos) {
+        this.requestTimeoutNanos = nanos;
+        return this;
+    }
+
+    /**
+     * Performs the processor's startup handshake, unless it has already been performed, so that subsequent runs start
+     * sending at once.
+     */
+    public final void start() {
+        if (startupNanos.isEmpty()) {
+            long beginNanos = System.nanoTime();
+            processor.start();
+            startupNanos = OptionalLong.of(System.nanoTime() - beginNanos);
+        }
+    }
+
+    /** Whether the processor accepts {@code kind} requests. */
+    public final boolean supports(RequestKind kind) {
+        return processor.supports(kind);
+    }
+
+    /** Sends the requests stored in a request log instead of generating frames. */
+    public void replay(Path log, ReplayTiming timing, int maxInFlight) {
+        ReplaySource source = new ReplaySource(log, processor);
+        engine().addStream(source, source.scheduler(timing))
+                .maxInFlight(maxInFlight)
+                .build()
+                .run();
+    }
+
+    /** Generates {@code kind} requests from the test image, one every {@code delay} on average across all streams. */
+    public final void sendAtFixedRate(RequestKind kind, long delay, TimeUnit timeUnit) {
+        long delayNanos = timeUnit.toNanos(delay);
+        LoadEngine.Builder engine = engine();
+        BiFunction<RequestKind, Long, FrameSource> sources = generatedSources(engine);
+        for (int stream = 0; stream < streams; stream++) {
+            FrameSource source = sources.apply(kind, (long) stream);
+            Scheduler scheduler = arrivals.scheduler(delayNanos * streams, delayNanos * stream, burstSize);
+            if (maxOutstandingFrames > 0) {
+                engine.addLiveStream(source, scheduler, maxOutstandingFrames, dropPolicy, keyframeInterval);
+            } else {
+                engine.addStream(source, scheduler);
+            }
+        }
+        engine.build().run();
+    }
+
+    /** Generates every kind of request in {@code workload} from the test image, each at its share of the rate. */
+    final void runMixed(MixedWorkload workload) {
+        LoadEngine.Builder engine = engine().maxInFlight(workload.maxInFlight());
+        BiFunction<RequestKind, Long, FrameSource> sources = generatedSources(engine);
+        long streamId = 0;
+        for (MixedWorkload.Share share : workload.shares()) {
+            long delayNanos = (long) (1_000_000_000 / workload.framesPerSecond(share));
+            for (int stream = 0; stream < streams; stream++) {
+                engine.addStream(
+                        sources.apply(share.kind(), streamId++),
+                        arrivals.scheduler(delayNanos * streams, delayNanos * stream, burstSize),
+                        share.priority());
+            }
+        }
+        engine.build().run();
+    }
+
+    /**
+     * Generates {@code kind} requests from the test image at the rate chosen by {@code controller}, until it has
+     * converged on the highest rate that meets its latency target.
+     */
+    public final void sendAtAdaptiveRate(RequestKind kind, AdaptiveRateController controller) {
+        LoadEngine.Builder engine = engine().addSink(controller);
+        BiFunction<RequestKind, Long, FrameSource> sources = generatedSources(engine);
+        for (int stream = 0; stream < streams; stream++) {
+            engine.addStream(sources.apply(kind, (long) stream), controller.scheduler(stream, streams));
+        }
+        engine.stopWhen(() -> stopCondition.getAsBoolean() || controller.isConverged())
+                .build()
+                .run();
+    }
+
+    /** Deletes the frame files left behind by previous runs and stops their writers. */
+    public final void close() {
+        frameStores.forEach(FrameFileStore::close);
+    }
+
+    /** Returns a factory for the generated sources of a run on {@code engine}, by request kind and stream id. */
+    private BiFunction<RequestKind, Long, FrameSource> generatedSources(LoadEngine.Builder engine) {
+        if (frameWriters > 0) {
+            FrameFileStore store =
+                    new FrameFileStore(sharedImagesDir, processor.imageFormat(), frameStoreQuotaBytes, frameWriters);
+            frameStores.add(store);
+            engine.addSink(store);
+            int writeAhead = Math.max(1, Math.min(2 * frameWriters, store.quotaFrames() / streams));
+            return (kind, streamId) -> new FrameFileSource(store, processor, supported(kind), streamId, writeAhead);
+        }
+        // A recorded run must leave its image behind, otherwise the requests in the log point at a deleted file.
+        PluginTypes.Image testImage = ProcessorUtils.loadAndSaveTestImage(
+                processor.imageFormat(), sharedImagesDir, recorder.isEmpty());
+        return (kind, streamId) -> new TestImageSource(processor, supported(kind), testImage, streamId);
+    }
+
+    private RequestKind supported(RequestKind kind) {
+        if (!processor.supports(kind)) {
+            throw new IllegalArgumentException("The processor does not accept " + kind + " requests");
+        }
+        return kind;
+    }
+
+    private LoadEngine.Builder engine() {
+        start();
+        LoadEngine.Builder builder = LoadEngine.builder()
+                .client(processor)
+                .clientStarted(startupNanos.getAsLong())
+                .stopWhen(stopCondition)
+                .executionModel(executionModel)
+                .requestTimeout(requestTimeoutNanos);
+        recorder.ifPresent(log -> builder.addSink(new RecordingSink(log, recordType)));
+        sinks.forEach(builder::addSink);
+        return builder;
+    }
+}
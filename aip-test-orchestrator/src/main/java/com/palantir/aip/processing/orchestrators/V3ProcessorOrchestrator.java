@@ -1,125 +1,35 @@
 package com.palantir.aip.processing.orchestrators;
 
-import com.google.common.util.concurrent.FutureCallback;
-import com.google.common.util.concurrent.Futures;
-import com.google.common.util.concurrent.ListenableFuture;
-import com.google.common.util.concurrent.MoreExecutors;
 import com.palantir.aip.processing.aip.AipInferenceProcessorClientV3;
-import com.palantir.aip.processing.util.ProcessorUtils;
-import com.palantir.aip.proto.processor.v3.ProcessorV3Protos;
-import com.palantir.aip.proto.types.PluginTypes;
+import com.palantir.aip.processing.aip.ProcessorClientV3Adapter;
+import com.palantir.aip.processing.engine.RequestKind;
+import com.palantir.aip.processing.replay.RecordType;
+import com.palantir.aip.processing.replay.RequestLogWriter;
 
 import java.nio.file.Path;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
-public class V3ProcessorOrchestrator {
-    private final AipInferenceProcessorClientV3 processor;
-    private final PluginTypes.Image testImage;
-    private final PluginTypes.ImageFormat imageFormat;
-
-    private long frameId;
-
+public class V3ProcessorOrchestrator extends ProcessorOrchestrator {
     public V3ProcessorOrchestrator(Path sharedImagesDir, AipInferenceProcessorClientV3 processor) {
-        this.frameId = 0;
-        this.processor = processor;
-        this.imageFormat = processor.getImageFormat();
-        this.testImage = ProcessorUtils.loadAndSaveTestImage(this.imageFormat, sharedImagesDir);
-    }
-
-    public void sendVideoAtFixedRate(ScheduledExecutorService executor, long delay, TimeUnit timeUnit) {
-        ScheduledFuture<?> task = executor.scheduleWithFixedDelay(this::sendVideo, 0, delay, timeUnit);
-
-        try {
-            System.out.println("Orchestrator: sending task...");
-            // This future will not return unless the program has been interrupted
-            task.get();
-        } catch (InterruptedException | ExecutionException e) {
-            System.out.println("Orchestrator: interrupted. Closing channel.");
-            processor.closeChannel();
-            throw new RuntimeException(e);
-        }
+        this(sharedImagesDir, processor, Optional.empty());
     }
 
-    public void sendImageryAtFixedRate(ScheduledExecutorService executor, long delay, TimeUnit timeUnit) {
-        ScheduledFuture<?> task = executor.scheduleWithFixedDelay(this::sendImagery, 0, delay, timeUnit);
-
-        try {
-            System.out.println("Orchestrator: sending task...");
-            // This future will not return unless the program has been interrupted
-            task.get();
-        } catch (InterruptedException | ExecutionException e) {
-            System.out.println("Orchestrator: interrupted. Closing channel.");
-            processor.closeChannel();
-            throw new RuntimeException(e);
-        }
+    public V3ProcessorOrchestrator(
+            Path sharedImagesDir, AipInferenceProcessorClientV3 processor, Optional<RequestLogWriter> recorder) {
+        super(sharedImagesDir, new ProcessorClientV3Adapter(processor), recorder, RecordType.V3_PROCESS_REQUEST);
     }
 
-    private synchronized void sendVideo() {
-        sendAndReceiveStartup();
-
-        ProcessorV3Protos.VideoRequest videoRequest =
-                ProcessorUtils.buildTestVideoRequest(testImage, ProcessorUtils.constructSampleUasMetadata());
-        ListenableFuture<ProcessorV3Protos.ProcessResponse> response =
-                processor.process(ProcessorV3Protos.ProcessRequest.newBuilder()
-                        .setRequestId(frameId++)
-                        .setVideo(videoRequest)
-                        .build());
-
-        handleProcessResponse(response);
+    public void sendVideoAtFixedRate(long delay, TimeUnit timeUnit) {
+        sendAtFixedRate(RequestKind.VIDEO, delay, timeUnit);
     }
 
-
-    private synchronized void sendImagery() {
-        sendAndReceiveStartup();
-
-        ProcessorV3Protos.ImageryRequest videoRequest =
-                ProcessorUtils.buildTestImageryRequest(testImage, processor.getSupportsRawImagery());
-
-        ListenableFuture<ProcessorV3Protos.ProcessResponse> response =
-                processor.process(ProcessorV3Protos.ProcessRequest.newBuilder()
-                        .setRequestId(frameId++)
-                        .setImagery(videoRequest)
-                        .build());
-
-        handleProcessResponse(response);
-    }
-
-    private void handleProcessResponse(ListenableFuture<ProcessorV3Protos.ProcessResponse> result) {
-        Futures.addCallback(
-                result,
-                new FutureCallback<>() {
-                    @Override
-                    public void onSuccess(ProcessorV3Protos.ProcessResponse processResponse) {
-                        System.out.println("Received ProcessResponse. RequestId: " + processResponse.getRequestId());
-                        System.out.println("Process response object:");
-                        System.out.println(processResponse);
-                    }
-
-                    @Override
-                    public void onFailure(Throwable throwable) {
-                        System.out.println("Orchestrator request failed:");
-                        throwable.printStackTrace();
-                    }
-                },
-                MoreExecutors.directExecutor());
+    public void sendImageryAtFixedRate(long delay, TimeUnit timeUnit) {
+        sendAtFixedRate(RequestKind.IMAGERY, delay, timeUnit);
     }
 
-    private void sendAndReceiveStartup() {
-        if (frameId == 0) {
-            try {
-                processor
-                        .process(ProcessorV3Protos.ProcessRequest.newBuilder()
-                                .setRequestId(frameId)
-                                .setStartup(ProcessorV3Protos.StartupRequest.getDefaultInstance())
-                                .build())
-                        .get();
-                frameId++;
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-        }
+    /** Interleaves video and imagery requests on the same processor, as described by {@code workload}. */
+    public void sendMixed(MixedWorkload workload) {
+        runMixed(workload);
     }
 }
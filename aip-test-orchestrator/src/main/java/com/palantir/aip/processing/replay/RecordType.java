@@ -0,0 +1,30 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.replay;
+
+/** The kind of message stored in a single frame of a request log. */
+public enum RecordType {
+    V2_INFERENCE_REQUEST((byte) 1),
+    V3_PROCESS_REQUEST((byte) 2);
+
+    private final byte code;
+
+    RecordType(byte code) {
+        this.code = code;
+    }
+
+    byte code() {
+        return code;
+    }
+
+    static RecordType fromCode(byte code) {
+        for (RecordType type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("unknown record type in request log: " + code);
+    }
+}
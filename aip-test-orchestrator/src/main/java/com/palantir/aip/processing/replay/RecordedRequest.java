@@ -0,0 +1,38 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.replay;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A single frame read back from a request log.
+ *
+ * The payload is a view into the memory-mapped log and is only valid until the next call to
+ * {@link RequestLogReader#next}; parse it before advancing the reader.
+ */
+public final class RecordedRequest {
+    private final RecordType type;
+    private final long offsetNanos;
+    private final ByteBuffer payload;
+
+    RecordedRequest(RecordType type, long offsetNanos, ByteBuffer payload) {
+        this.type = type;
+        this.offsetNanos = offsetNanos;
+        this.payload = payload;
+    }
+
+    public RecordType type() {
+        return type;
+    }
+
+    /** Nanoseconds between the start of the recording and the moment this request was sent. */
+    public long offsetNanos() {
+        return offsetNanos;
+    }
+
+    public ByteBuffer payload() {
+        return payload;
+    }
+}
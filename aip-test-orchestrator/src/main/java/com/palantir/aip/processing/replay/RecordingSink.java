@@ -0,0 +1,29 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.replay;
+
+import com.palantir.aip.processing.engine.LoadSink;
+import com.palantir.aip.processing.engine.Request;
+
+/** Appends every request sent by the engine to a request log. */
+public final class RecordingSink implements LoadSink {
+    private final RequestLogWriter writer;
+    private final RecordType type;
+
+    public RecordingSink(RequestLogWriter writer, RecordType type) {
+        this.writer = writer;
+        this.type = type;
+    }
+
+    @Override
+    public void onSent(Request request, long sendNanos) {
+        writer.append(type, sendNanos, request.message());
+    }
+
+    @Override
+    public void onComplete() {
+        writer.close();
+    }
+}
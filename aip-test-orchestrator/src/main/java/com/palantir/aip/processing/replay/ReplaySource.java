@@ -0,0 +1,82 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.replay;
+
+import com.palantir.aip.processing.engine.FrameSource;
+import com.palantir.aip.processing.engine.ProcessorClient;
+import com.palantir.aip.processing.engine.Request;
+import com.palantir.aip.processing.engine.Scheduler;
+import com.palantir.aip.processing.engine.Schedulers;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Replays the requests stored in a request log.
+ *
+ * The source reads one frame ahead of the engine so that {@link #scheduler} can wait for the recorded send time of
+ * the next frame before it is handed out.
+ */
+public final class ReplaySource implements FrameSource {
+    private final RequestLogReader reader;
+    private final ProcessorClient client;
+
+    private Optional<Request> pending;
+    private long pendingOffsetNanos;
+
+    public ReplaySource(Path log, ProcessorClient client) {
+        this.reader = new RequestLogReader(log);
+        this.client = client;
+        readAhead();
+    }
+
+    @Override
+    public Optional<Request> next() {
+        Optional<Request> next = pending;
+        readAhead();
+        return next;
+    }
+
+    /** Returns a scheduler for this source that reproduces the recording with the given timing. */
+    public Scheduler scheduler(ReplayTiming timing) {
+        switch (timing) {
+            case FAST:
+                return Schedulers.unpaced();
+            case ORIGINAL:
+                return new Scheduler() {
+                    private long startNanos;
+                    private long firstOffsetNanos = -1;
+
+                    @Override
+                    public long awaitNext() throws InterruptedException {
+                        if (pending.isEmpty()) {
+                            return System.nanoTime();
+                        }
+                        if (firstOffsetNanos < 0) {
+                            startNanos = System.nanoTime();
+                            firstOffsetNanos = pendingOffsetNanos;
+                            return startNanos;
+                        }
+                        long dueNanos = startNanos + pendingOffsetNanos - firstOffsetNanos;
+                        Schedulers.awaitNanoTime(dueNanos);
+                        return dueNanos;
+                    }
+                };
+            default:
+                throw new IllegalArgumentException("unknown replay timing: " + timing);
+        }
+    }
+
+    @Override
+    public void close() {
+        reader.close();
+    }
+
+    private void readAhead() {
+        Optional<RecordedRequest> recorded = reader.next();
+        // The payload is only valid until the reader advances, so it is parsed straight away.
+        pending = recorded.map(client::fromRecording);
+        pendingOffsetNanos = recorded.map(RecordedRequest::offsetNanos).orElse(0L);
+    }
+}
@@ -0,0 +1,13 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.replay;
+
+/** How the gaps between requests in a log are reproduced during replay. */
+public enum ReplayTiming {
+    /** Preserve the inter-arrival times that were recorded. */
+    ORIGINAL,
+    /** Send every request as soon as the previous one has been sent. */
+    FAST
+}
@@ -0,0 +1,55 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.replay;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary layout shared by {@link RequestLogWriter} and {@link RequestLogReader}.
+ *
+ * A log starts with a fixed header (magic bytes followed by a version byte). Every frame after that is laid out as
+ * {@code [type: 1 byte][send time delta in nanos: varint64][payload length: varint32][payload]}, where the delta is
+ * relative to the previous frame (or to the start of the recording for the first frame) and the payload is the
+ * serialized protobuf request.
+ */
+final class RequestLogFormat {
+    static final byte[] MAGIC = "AIPR".getBytes(StandardCharsets.US_ASCII);
+    static final byte VERSION = 1;
+    static final int FILE_HEADER_BYTES = MAGIC.length + 1;
+    static final int MAX_FRAME_HEADER_BYTES = 1 + 10 + 5;
+
+    private RequestLogFormat() {}
+
+    static void putVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /** Whether the remaining bytes of {@code buffer} hold a complete varint, without consuming any of them. */
+    static boolean hasVarint(ByteBuffer buffer) {
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            if ((buffer.get(i) & 0x80) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static long getVarint(ByteBuffer buffer) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalStateException("malformed varint in request log");
+    }
+}
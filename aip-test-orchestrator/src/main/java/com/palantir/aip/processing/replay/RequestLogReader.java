@@ -0,0 +1,151 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Streams frames out of a request log written by {@link RequestLogWriter}.
+ *
+ * The log is memory-mapped one bounded window at a time, so reading a capture of any size uses a constant amount of
+ * memory. A recording that was cut off mid-write, for example because the orchestrator was killed, ends cleanly after
+ * its last complete frame.
+ */
+public final class RequestLogReader implements Closeable {
+    private static final long WINDOW_BYTES = 64L << 20;
+
+    private final FileChannel channel;
+    private final long size;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+    private long offsetNanos = 0;
+
+    public RequestLogReader(Path path) {
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open request log " + path, e);
+        }
+        try {
+            this.size = channel.size();
+            this.position = readHeader(path);
+        } catch (IOException e) {
+            closeAfter(e);
+            throw new UncheckedIOException("Could not open request log " + path, e);
+        } catch (RuntimeException e) {
+            closeAfter(e);
+            throw e;
+        }
+    }
+
+    /** Checks the file header and returns the position of the first frame. */
+    private long readHeader(Path path) throws IOException {
+        map(0, Math.min(size, RequestLogFormat.FILE_HEADER_BYTES));
+        byte[] header = new byte[window.remaining()];
+        window.get(header);
+        int magicBytes = Math.min(header.length, RequestLogFormat.MAGIC.length);
+        if (!Arrays.equals(header, 0, magicBytes, RequestLogFormat.MAGIC, 0, magicBytes)) {
+            throw new IllegalArgumentException("Not a request log: " + path);
+        }
+        if (header.length < RequestLogFormat.FILE_HEADER_BYTES) {
+            // The recording was cut off before its header was written out, so it holds no frames.
+            return size;
+        }
+        byte version = header[RequestLogFormat.MAGIC.length];
+        if (version != RequestLogFormat.VERSION) {
+            throw new IllegalArgumentException("Unsupported request log version " + version + ": " + path);
+        }
+        return RequestLogFormat.FILE_HEADER_BYTES;
+    }
+
+    /** Closes the log after the constructor failed with {@code failure}. */
+    private void closeAfter(Exception failure) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    /** Returns the next frame, or empty once the end of the log has been reached. */
+    public Optional<RecordedRequest> next() {
+        if (position >= size) {
+            return Optional.empty();
+        }
+        try {
+            ensureMapped(position, Math.min(RequestLogFormat.MAX_FRAME_HEADER_BYTES, size - position));
+            window.position((int) (position - windowStart));
+            byte code = window.get();
+            if (isCutOffInVarint()) {
+                return endOfTruncatedLog();
+            }
+            long deltaNanos = RequestLogFormat.getVarint(window);
+            if (isCutOffInVarint()) {
+                return endOfTruncatedLog();
+            }
+            int length = (int) RequestLogFormat.getVarint(window);
+            long payloadStart = windowStart + window.position();
+            if (payloadStart + length > size) {
+                return endOfTruncatedLog();
+            }
+            RecordType type = RecordType.fromCode(code);
+
+            ensureMapped(position, payloadStart - position + length);
+            int relativeStart = (int) (payloadStart - windowStart);
+            ByteBuffer payload = window.duplicate();
+            payload.position(relativeStart).limit(relativeStart + length);
+
+            position = payloadStart + length;
+            offsetNanos += deltaNanos;
+            return Optional.of(new RecordedRequest(type, offsetNanos, payload.slice()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read request log", e);
+        }
+    }
+
+    /** Whether the log ends before the varint at the window position does; a malformed varint still fails to parse. */
+    private boolean isCutOffInVarint() {
+        return !RequestLogFormat.hasVarint(window) && windowStart + window.limit() >= size;
+    }
+
+    /** Skips the partial frame at the end of a log whose recording was cut off mid-write. */
+    private Optional<RecordedRequest> endOfTruncatedLog() {
+        position = size;
+        return Optional.empty();
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not close request log", e);
+        }
+        window = null;
+    }
+
+    private void ensureMapped(long start, long length) throws IOException {
+        if (window != null && start >= windowStart && start + length <= windowStart + window.capacity()) {
+            return;
+        }
+        map(start, Math.max(length, Math.min(WINDOW_BYTES, size - start)));
+    }
+
+    private void map(long start, long length) throws IOException {
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        windowStart = start;
+    }
+}
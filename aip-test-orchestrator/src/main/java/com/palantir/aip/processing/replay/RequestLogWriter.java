@@ -0,0 +1,118 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.replay;
+
+import com.google.protobuf.MessageLite;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/** Appends requests, together with the time they were sent, to a length-delimited binary log. */
+public final class RequestLogWriter implements Closeable {
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final long startNanos;
+    // Not a monitor: appends write to disk, and a virtual thread blocked on I/O inside a monitor pins its carrier.
+    private final Lock lock = new ReentrantLock();
+
+    // Guarded by lock.
+    private long lastOffsetNanos = 0;
+    private long frames = 0;
+    private boolean closed = false;
+
+    public RequestLogWriter(Path path) {
+        try {
+            this.channel = FileChannel.open(
+                    path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open request log " + path, e);
+        }
+        this.startNanos = System.nanoTime();
+        buffer.put(RequestLogFormat.MAGIC).put(RequestLogFormat.VERSION);
+    }
+
+    /** Records a request sent at {@code sendNanos}, as measured by {@link System#nanoTime()}. */
+    public void append(RecordType type, long sendNanos, MessageLite request) {
+        byte[] payload = request.toByteArray();
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            // Senders on different threads may race between taking the timestamp and appending, so clamp to keep
+            // deltas non-negative.
+            long offsetNanos = Math.max(sendNanos - startNanos, lastOffsetNanos);
+            write(type, offsetNanos, payload);
+            lastOffsetNanos = offsetNanos;
+            frames++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to request log", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long frames() {
+        lock.lock();
+        try {
+            return frames;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try (FileChannel toClose = channel) {
+                flush();
+                toClose.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not close request log", e);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(RecordType type, long offsetNanos, byte[] payload) throws IOException {
+        if (buffer.remaining() < RequestLogFormat.MAX_FRAME_HEADER_BYTES + payload.length) {
+            flush();
+        }
+        buffer.put(type.code());
+        RequestLogFormat.putVarint(buffer, offsetNanos - lastOffsetNanos);
+        RequestLogFormat.putVarint(buffer, payload.length);
+        if (payload.length <= buffer.remaining()) {
+            buffer.put(payload);
+        } else {
+            flush();
+            ByteBuffer large = ByteBuffer.wrap(payload);
+            while (large.hasRemaining()) {
+                channel.write(large);
+            }
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.stats;
+
+import java.util.concurrent.TimeUnit;
+
+/** Parses and formats the short durations accepted on the command line, such as {@code 250ms}, {@code 30s}. */
+public final class Durations {
+    private Durations() {}
+
+    public static long parseNanos(String value) {
+        String trimmed = value.trim().toLowerCase();
+        try {
+            if (trimmed.endsWith("us")) {
+                return TimeUnit.MICROSECONDS.toNanos(Long.parseLong(strip(trimmed, 2)));
+            } else if (trimmed.endsWith("ms")) {
+                return TimeUnit.MILLISECONDS.toNanos(Long.parseLong(strip(trimmed, 2)));
+            } else if (trimmed.endsWith("s")) {
+                return (long) (Double.parseDouble(strip(trimmed, 1)) * TimeUnit.SECONDS.toNanos(1));
+            } else if (trimmed.endsWith("m")) {
+                return (long) (Double.parseDouble(strip(trimmed, 1)) * TimeUnit.MINUTES.toNanos(1));
+            } else if (trimmed.endsWith("h")) {
+                return (long) (Double.parseDouble(strip(trimmed, 1)) * TimeUnit.HOURS.toNanos(1));
+            } else if (trimmed.equals("0")) {
+                return 0;
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid duration: " + value, e);
+        }
+        throw new IllegalArgumentException("invalid duration (expected a unit such as ms, s, m or h): " + value);
+    }
+
+    public static String format(long nanos) {
+        if (nanos < TimeUnit.SECONDS.toNanos(1)) {
+            return String.format("%.3f ms", nanos / 1_000_000.0);
+        }
+        return String.format("%.3f s", nanos / 1_000_000_000.0);
+    }
+
+    private static String strip(String value, int suffixLength) {
+        return value.substring(0, value.length() - suffixLength);
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.stats;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size, thread-safe histogram of nanosecond latencies.
+ *
+ * Values below 128 are counted exactly; larger values fall into log-linear buckets of 64 sub-buckets per power of
+ * two, which bounds the relative error of every reported percentile to under 1%. Histograms can be merged, so
+ * per-window or per-worker histograms can be combined into one report.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_BUCKETS = SUB_BUCKETS * 2;
+    private static final int BUCKETS = LINEAR_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(bucket(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long bucketCount = other.counts.get(i);
+            if (bucketCount != 0) {
+                counts.addAndGet(i, bucketCount);
+            }
+        }
+        count.add(other.count.sum());
+        sum.add(other.sum.sum());
+        max.accumulate(other.max.get());
+    }
+
+    /** Writes the non-empty buckets, so that the histogram can be rebuilt by {@link #readFrom} in another process. */
+    public void writeTo(DataOutput out) throws IOException {
+        int nonEmpty = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts.get(i) != 0) {
+                nonEmpty++;
+            }
+        }
+        out.writeInt(nonEmpty);
+        for (int i = 0; i < BUCKETS && nonEmpty > 0; i++) {
+            long bucketCount = counts.get(i);
+            if (bucketCount != 0) {
+                out.writeShort(i);
+                out.writeLong(bucketCount);
+                nonEmpty--;
+            }
+        }
+        out.writeLong(sum.sum());
+        out.writeLong(max.get());
+    }
+
+    public static LatencyHistogram readFrom(DataInput in) throws IOException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int nonEmpty = in.readInt();
+        for (int i = 0; i < nonEmpty; i++) {
+            int bucket = in.readUnsignedShort();
+            long bucketCount = in.readLong();
+            histogram.counts.addAndGet(bucket, bucketCount);
+            histogram.count.add(bucketCount);
+        }
+        histogram.sum.add(in.readLong());
+        histogram.max.accumulate(in.readLong());
+        return histogram;
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long maxNanos() {
+        return max.get();
+    }
+
+    public double meanNanos() {
+        long total = count.sum();
+        return total == 0 ? 0 : (double) sum.sum() / total;
+    }
+
+    /** Returns how many recorded values exceed {@code nanos}, to bucket precision. */
+    public long countAbove(long nanos) {
+        long above = 0;
+        for (int i = bucket(Math.max(nanos, 0)) + 1; i < BUCKETS; i++) {
+            above += counts.get(i);
+        }
+        return above;
+    }
+
+    /** Returns the latency below which {@code percentile} percent of the recorded values fall. */
+    public long percentileNanos(double percentile) {
+        long total = count.sum();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(representative(i), maxNanos());
+            }
+        }
+        return maxNanos();
+    }
+
+    /** Formats the usual percentiles in milliseconds. */
+    public String summary() {
+        return String.format(
+                "p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, p99.9 %.3f ms, max %.3f ms, mean %.3f ms",
+                millis(percentileNanos(50)),
+                millis(percentileNanos(90)),
+                millis(percentileNanos(99)),
+                millis(percentileNanos(99.9)),
+                millis(maxNanos()),
+                meanNanos() / 1_000_000.0);
+    }
+
+    static int bucket(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    static long representative(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+        long mantissa = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        long lower = mantissa << shift;
+        return lower + (1L << shift) / 2;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
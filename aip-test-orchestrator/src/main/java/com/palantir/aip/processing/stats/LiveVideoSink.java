@@ -0,0 +1,84 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.stats;
+
+import com.google.protobuf.Message;
+import com.palantir.aip.processing.engine.LoadSink;
+import com.palantir.aip.processing.engine.Request;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reports how live streams degrade under load: the share of captured frames that were dropped, the rate at which
+ * frames were actually processed, and how stale frames were when they were sent and when their results arrived.
+ */
+@SuppressWarnings("BanSystemOut")
+public final class LiveVideoSink implements LoadSink {
+    private final Map<Long, Long> captureNanos = new ConcurrentHashMap<>();
+    private final LongAdder captured = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder processed = new LongAdder();
+    private final LatencyHistogram sendStaleness = new LatencyHistogram();
+    private final LatencyHistogram resultAge = new LatencyHistogram();
+    private final AtomicBoolean reported = new AtomicBoolean();
+
+    private volatile long startNanos = System.nanoTime();
+
+    @Override
+    public void onStart(long startupNanos) {
+        this.startNanos = System.nanoTime();
+    }
+
+    @Override
+    public void onCaptured(Request request, long nanos) {
+        captured.increment();
+        captureNanos.put(request.id(), nanos);
+    }
+
+    @Override
+    public void onDropped(Request request) {
+        dropped.increment();
+        captureNanos.remove(request.id());
+    }
+
+    @Override
+    public void onSent(Request request, long sendNanos) {
+        Long capture = captureNanos.get(request.id());
+        if (capture != null) {
+            sendStaleness.record(sendNanos - capture);
+        }
+    }
+
+    @Override
+    public void onResponse(Request request, Message response, long latencyNanos) {
+        Long capture = captureNanos.remove(request.id());
+        if (capture != null) {
+            processed.increment();
+            resultAge.record(System.nanoTime() - capture);
+        }
+    }
+
+    @Override
+    public void onFailure(Request request, Throwable throwable, long latencyNanos) {
+        captureNanos.remove(request.id());
+    }
+
+    /** Prints the report, unless it has already been printed. */
+    public void report() {
+        if (!reported.compareAndSet(false, true)) {
+            return;
+        }
+        long frames = captured.sum();
+        long drops = dropped.sum();
+        double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        System.out.println("Orchestrator: live video: " + frames + " frames captured, " + drops + " dropped ("
+                + String.format("%.2f", frames == 0 ? 0.0 : 100.0 * drops / frames) + "%), effective rate "
+                + String.format("%.2f", processed.sum() / seconds) + " frames per second");
+        System.out.println("  staleness at send: " + sendStaleness.summary());
+        System.out.println("  result age: " + resultAge.summary());
+    }
+}
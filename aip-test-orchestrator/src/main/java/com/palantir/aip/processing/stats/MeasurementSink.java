@@ -0,0 +1,161 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.stats;
+
+import com.google.protobuf.Message;
+import com.palantir.aip.processing.engine.LoadSink;
+import com.palantir.aip.processing.engine.Request;
+import com.palantir.aip.processing.engine.RequestKind;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects latency statistics for the steady-state part of a run and reports processor cold-start cost separately.
+ *
+ * Requests sent during the warm-up are excluded. The measurement window opens with the first request sent after the
+ * warm-up and, if a length is given, closes after that long; {@link #isFinished} then tells the engine to stop.
+ * Latency is also reported per request kind when a run mixes video and imagery.
+ */
+@SuppressWarnings("BanSystemOut")
+public final class MeasurementSink implements LoadSink {
+    private static final long STEADY_STATE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Warmup warmup;
+    private final long measureNanos;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final Map<RequestKind, LatencyHistogram> latenciesByKind = new EnumMap<>(RequestKind.class);
+    private final SteadyStateDetector steadyState = new SteadyStateDetector(STEADY_STATE_INTERVAL_NANOS);
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong windowStartNanos = new AtomicLong(-1);
+    private final AtomicLong firstResponseNanos = new AtomicLong(-1);
+    private final LongAdder warmupResponses = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicBoolean reported = new AtomicBoolean();
+
+    private volatile long startNanos = System.nanoTime();
+    private volatile long handshakeNanos;
+
+    /** Creates a sink that measures for {@code measureNanos} after the warm-up, or until the run ends if zero. */
+    public MeasurementSink(Warmup warmup, long measureNanos) {
+        this.warmup = warmup;
+        this.measureNanos = measureNanos;
+        for (RequestKind kind : RequestKind.values()) {
+            latenciesByKind.put(kind, new LatencyHistogram());
+        }
+    }
+
+    /** Whether the measurement window has closed, after which no further requests need to be sent. */
+    public boolean isFinished() {
+        long windowStart = windowStartNanos.get();
+        return measureNanos > 0 && windowStart >= 0 && System.nanoTime() - windowStart >= measureNanos;
+    }
+
+    public LatencyHistogram latencies() {
+        return latencies;
+    }
+
+    public LatencyHistogram latencies(RequestKind kind) {
+        return latenciesByKind.get(kind);
+    }
+
+    public long failures() {
+        return failures.sum();
+    }
+
+    /** How long the measurement window has been open, or zero if it has not opened yet. */
+    public long windowNanos() {
+        long windowStart = windowStartNanos.get();
+        if (windowStart < 0) {
+            return 0;
+        }
+        long elapsed = System.nanoTime() - windowStart;
+        return measureNanos > 0 ? Math.min(measureNanos, elapsed) : elapsed;
+    }
+
+    @Override
+    public void onStart(long startupNanos) {
+        this.handshakeNanos = startupNanos;
+        this.startNanos = System.nanoTime();
+    }
+
+    @Override
+    public void onSent(Request request, long sendNanos) {
+        if (windowStartNanos.get() < 0 && !warmup.includes(sendNanos - startNanos, sequence.getAndIncrement())) {
+            windowStartNanos.compareAndSet(-1, sendNanos);
+        }
+    }
+
+    @Override
+    public void onResponse(Request request, Message response, long latencyNanos) {
+        long nowNanos = System.nanoTime();
+        firstResponseNanos.compareAndSet(-1, nowNanos);
+        steadyState.record(nowNanos, latencyNanos);
+        long sendNanos = nowNanos - latencyNanos;
+        if (inWindow(sendNanos)) {
+            latencies.record(latencyNanos);
+            latenciesByKind.get(request.kind()).record(latencyNanos);
+        } else if (beforeWindow(sendNanos)) {
+            warmupResponses.increment();
+        }
+    }
+
+    @Override
+    public void onFailure(Request request, Throwable throwable, long latencyNanos) {
+        if (inWindow(System.nanoTime() - latencyNanos)) {
+            failures.increment();
+        }
+    }
+
+    /** Prints the report, unless it has already been printed. */
+    public void report() {
+        if (!reported.compareAndSet(false, true)) {
+            return;
+        }
+        long firstResponse = firstResponseNanos.get();
+        long steadyAt = steadyState.steadyAtNanos();
+        System.out.println("Orchestrator: cold start");
+        System.out.println("  startup handshake: " + Durations.format(handshakeNanos));
+        System.out.println("  time to first response: "
+                + (firstResponse < 0 ? "no response received" : Durations.format(firstResponse - startNanos)));
+        System.out.println("  time to steady state: "
+                + (steadyAt < 0 ? "not reached" : Durations.format(Math.max(steadyAt - startNanos, 0))));
+
+        System.out.println("Orchestrator: warm-up (" + warmup + "): " + warmupResponses.sum()
+                + " responses excluded from statistics");
+
+        long windowStart = windowStartNanos.get();
+        if (windowStart < 0) {
+            System.out.println("Orchestrator: the measurement window never opened.");
+            return;
+        }
+        long window = windowNanos();
+        long responses = latencies.count();
+        System.out.println("Orchestrator: measurement window " + Durations.format(window) + ": " + responses
+                + " responses, " + failures.sum() + " failures, "
+                + String.format("%.2f", responses / (window / 1_000_000_000.0)) + " responses per second");
+        System.out.println("  latency: " + latencies.summary());
+        if (latenciesByKind.values().stream().filter(histogram -> histogram.count() > 0).count() > 1) {
+            latenciesByKind.forEach((kind, histogram) -> System.out.println(
+                    "  " + kind.name().toLowerCase() + " latency (" + histogram.count() + " responses): "
+                            + histogram.summary()));
+        }
+    }
+
+    private boolean beforeWindow(long sendNanos) {
+        long windowStart = windowStartNanos.get();
+        return windowStart < 0 || sendNanos < windowStart;
+    }
+
+    private boolean inWindow(long sendNanos) {
+        long windowStart = windowStartNanos.get();
+        return windowStart >= 0
+                && sendNanos >= windowStart
+                && (measureNanos == 0 || sendNanos - windowStart < measureNanos);
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.stats;
+
+import com.palantir.aip.processing.engine.LoadSink;
+import com.palantir.aip.processing.engine.Request;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reports how accurately the orchestrator itself kept to its schedule: the pacing error of a request is the time
+ * between when its scheduler intended it to be sent and when it actually was. Building the request and waiting for
+ * an in-flight slot both count towards the error.
+ */
+@SuppressWarnings("BanSystemOut")
+public final class PacingSink implements LoadSink {
+    private static final long LATE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final LatencyHistogram errors = new LatencyHistogram();
+    private final LongAdder late = new LongAdder();
+    private final AtomicBoolean reported = new AtomicBoolean();
+
+    @Override
+    public void onPaced(Request request, long dueNanos, long sendNanos) {
+        long errorNanos = sendNanos - dueNanos;
+        errors.record(errorNanos);
+        if (errorNanos > LATE_NANOS) {
+            late.increment();
+        }
+    }
+
+    /** Prints the report, unless it has already been printed. */
+    public void report() {
+        if (!reported.compareAndSet(false, true) || errors.count() == 0) {
+            return;
+        }
+        System.out.println("Orchestrator: pacing error over " + errors.count() + " requests ("
+                + String.format("%.2f", 100.0 * late.sum() / errors.count()) + "% sent more than "
+                + Durations.format(LATE_NANOS) + " late): " + errors.summary());
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.stats;
+
+/**
+ * Latencies of the most recent intervals of a run, kept as a ring of histograms so that memory stays constant.
+ *
+ * Recording may happen concurrently with {@link #advance}; a response that races with the rotation is counted in
+ * either the old or the new interval.
+ */
+public final class RollingLatencyWindow {
+    private final LatencyHistogram[] intervals;
+
+    private volatile int current = 0;
+
+    public RollingLatencyWindow(int intervalCount) {
+        this.intervals = new LatencyHistogram[intervalCount];
+        for (int i = 0; i < intervalCount; i++) {
+            intervals[i] = new LatencyHistogram();
+        }
+    }
+
+    public void record(long latencyNanos) {
+        intervals[current].record(latencyNanos);
+    }
+
+    /** Returns the merged latencies of every interval in the window. */
+    public synchronized LatencyHistogram snapshot() {
+        LatencyHistogram merged = new LatencyHistogram();
+        for (LatencyHistogram interval : intervals) {
+            merged.merge(interval);
+        }
+        return merged;
+    }
+
+    /** Starts a new interval, dropping the oldest one from the window. */
+    public synchronized void advance() {
+        int next = (current + 1) % intervals.length;
+        intervals[next].reset();
+        current = next;
+    }
+
+    public synchronized void clear() {
+        for (LatencyHistogram interval : intervals) {
+            interval.reset();
+        }
+    }
+}
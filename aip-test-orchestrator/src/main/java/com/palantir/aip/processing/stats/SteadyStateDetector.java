@@ -0,0 +1,96 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.stats;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Detects when latency has settled, by comparing the mean latency of consecutive fixed-length intervals.
+ *
+ * The run is considered steady from the start of the first run of {@link #STABLE_INTERVALS} non-empty intervals whose
+ * means all lie within {@link #TOLERANCE} of their common average.
+ */
+final class SteadyStateDetector {
+    private static final int STABLE_INTERVALS = 3;
+    private static final double TOLERANCE = 0.1;
+
+    private final long intervalNanos;
+    private final AtomicReference<Interval> current = new AtomicReference<>();
+    private final double[] recentMeans = new double[STABLE_INTERVALS];
+    private final long[] recentStarts = new long[STABLE_INTERVALS];
+
+    private int completed;
+    private volatile long steadyAtNanos = -1;
+
+    SteadyStateDetector(long intervalNanos) {
+        this.intervalNanos = intervalNanos;
+    }
+
+    /**
+     * Records a response without blocking; only the thread that rolls an interval over summarizes it. A response
+     * recorded while its interval rolls over may miss that interval's mean, which does not move it noticeably.
+     */
+    void record(long nowNanos, long latencyNanos) {
+        if (steadyAtNanos >= 0) {
+            return;
+        }
+        Interval interval = current.get();
+        if (interval == null) {
+            current.compareAndSet(null, new Interval(nowNanos));
+            interval = current.get();
+        }
+        if (nowNanos - interval.startNanos >= intervalNanos) {
+            long elapsed = nowNanos - interval.startNanos;
+            Interval next = new Interval(interval.startNanos + elapsed / intervalNanos * intervalNanos);
+            if (current.compareAndSet(interval, next)) {
+                completeInterval(interval);
+            }
+            interval = current.get();
+        }
+        interval.sum.add(latencyNanos);
+        interval.count.increment();
+    }
+
+    /** The time at which latency became steady, as measured by {@link System#nanoTime()}, or -1 if it has not. */
+    long steadyAtNanos() {
+        return steadyAtNanos;
+    }
+
+    private synchronized void completeInterval(Interval interval) {
+        long count = interval.count.sum();
+        if (count == 0) {
+            return;
+        }
+        int slot = completed % STABLE_INTERVALS;
+        recentMeans[slot] = (double) interval.sum.sum() / count;
+        recentStarts[slot] = interval.startNanos;
+        completed++;
+
+        if (completed < STABLE_INTERVALS) {
+            return;
+        }
+        double average = 0;
+        for (double mean : recentMeans) {
+            average += mean / STABLE_INTERVALS;
+        }
+        for (double mean : recentMeans) {
+            if (Math.abs(mean - average) > TOLERANCE * average) {
+                return;
+            }
+        }
+        steadyAtNanos = recentStarts[completed % STABLE_INTERVALS];
+    }
+
+    private static final class Interval {
+        private final long startNanos;
+        private final LongAdder sum = new LongAdder();
+        private final LongAdder count = new LongAdder();
+
+        private Interval(long startNanos) {
+            this.startNanos = startNanos;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.stats;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/** The part of a run whose results are excluded from statistics, given either as a duration or a frame count. */
+public final class Warmup {
+    private static final Warmup NONE = new Warmup(0, 0);
+
+    private final long nanos;
+    private final long frames;
+
+    private Warmup(long nanos, long frames) {
+        this.nanos = nanos;
+        this.frames = frames;
+    }
+
+    public static Warmup none() {
+        return NONE;
+    }
+
+    public static Warmup ofNanos(long nanos) {
+        return new Warmup(nanos, 0);
+    }
+
+    public static Warmup ofFrames(long frames) {
+        return new Warmup(0, frames);
+    }
+
+    /** Parses either a duration such as {@code 30s} or {@code 500ms}, or a frame count such as {@code 1000f}. */
+    public static Warmup parse(String value) {
+        String trimmed = value.trim().toLowerCase();
+        if (trimmed.endsWith("f")) {
+            try {
+                return ofFrames(Long.parseLong(trimmed.substring(0, trimmed.length() - 1)));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("invalid warm-up frame count: " + value, e);
+            }
+        }
+        return ofNanos(Durations.parseNanos(trimmed));
+    }
+
+    /** The warm-up duration, or 0 if the warm-up is a frame count. */
+    public long nanos() {
+        return nanos;
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeLong(nanos);
+        out.writeLong(frames);
+    }
+
+    public static Warmup readFrom(DataInput in) throws IOException {
+        return new Warmup(in.readLong(), in.readLong());
+    }
+
+    /** Whether a request sent {@code elapsedNanos} into the run, as the {@code sequence}-th request, is warm-up. */
+    boolean includes(long elapsedNanos, long sequence) {
+        return frames > 0 ? sequence < frames : elapsedNanos < nanos;
+    }
+
+    @Override
+    public String toString() {
+        if (frames > 0) {
+            return frames + " frames";
+        }
+        return nanos == 0 ? "none" : Durations.format(nanos);
+    }
+}
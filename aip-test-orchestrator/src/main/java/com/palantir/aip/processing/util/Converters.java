@@ -60,10 +60,15 @@ public final class Converters {
     }
 
     public static VideoFrame toVideoFrame(long frameId, ProcessorV3Protos.VideoRequest videoRequest, PluginTypes.ImageFormat imageFormat) {
+        return toVideoFrame(0, frameId, videoRequest, imageFormat);
+    }
+
+    public static VideoFrame toVideoFrame(
+            long streamId, long frameId, ProcessorV3Protos.VideoRequest videoRequest, PluginTypes.ImageFormat imageFormat) {
         return new VideoFrame() {
             @Override
             public long streamId() {
-                return 0;
+                return streamId;
             }
 
             @Override
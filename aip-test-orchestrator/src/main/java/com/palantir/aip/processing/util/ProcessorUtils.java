@@ -13,6 +13,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.nio.file.Path;
 import java.time.Instant;
@@ -25,9 +26,28 @@ public final class ProcessorUtils {
     private ProcessorUtils() {}
 
     public static PluginTypes.Image loadAndSaveTestImage(PluginTypes.ImageFormat imageFormat, Path sharedImagesDir) {
-        URL imageResourceBgr = V2ProcessorOrchestrator.class.getClassLoader().getResource(TEST_IMAGE_RESOURCE_PATH);
+        return loadAndSaveTestImage(imageFormat, sharedImagesDir, true);
+    }
+
+    public static PluginTypes.Image loadAndSaveTestImage(
+            PluginTypes.ImageFormat imageFormat, Path sharedImagesDir, boolean deleteOnExit) {
         try {
-            byte[] bytes = imageResourceBgr.openStream().readAllBytes();
+            File tempFile = createTempImageFileForProcessor(sharedImagesDir, encodeTestImage(imageFormat), imageFormat);
+            if (deleteOnExit) {
+                tempFile.deleteOnExit();
+            }
+            System.out.println("Created test image at location:" + tempFile.getPath());
+            return testImageAt(tempFile.toPath());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** Returns the bundled test image encoded in {@code imageFormat}. */
+    public static byte[] encodeTestImage(PluginTypes.ImageFormat imageFormat) {
+        URL imageResourceBgr = V2ProcessorOrchestrator.class.getClassLoader().getResource(TEST_IMAGE_RESOURCE_PATH);
+        try (InputStream imageStream = imageResourceBgr.openStream()) {
+            byte[] bytes = imageStream.readAllBytes();
 
             switch (imageFormat) {
                 case BGR888:
@@ -57,42 +77,44 @@ public final class ProcessorUtils {
                 default:
                     throw new RuntimeException("invalid image format specified by processor: " + imageFormat);
             }
-
-            File tempFile = createTempImageFileForProcessor(sharedImagesDir, bytes, imageFormat);
-            System.out.println("Created test image at location:" + tempFile.getPath());
-            return PluginTypes.Image.newBuilder()
-                    .setPath(tempFile.getAbsolutePath())
-                    .setWidth(WIDTH)
-                    .setHeight(HEIGHT)
-                    .build();
+            return bytes;
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
-    public static File createTempImageFileForProcessor(
-            Path imagesDirPath, byte[] bytes, PluginTypes.ImageFormat imageFormat) throws IOException {
-        String imageEncoding;
+    /** Describes a copy of the test image stored at {@code path}. */
+    public static PluginTypes.Image testImageAt(Path path) {
+        return PluginTypes.Image.newBuilder()
+                .setPath(path.toAbsolutePath().toString())
+                .setWidth(WIDTH)
+                .setHeight(HEIGHT)
+                .build();
+    }
+
+    /** Returns the file extension for images in {@code imageFormat}. */
+    public static String imageExtension(PluginTypes.ImageFormat imageFormat) {
         switch (imageFormat) {
             case PNG:
-                imageEncoding = ".png";
-                break;
+                return ".png";
             case TIFF:
-                imageEncoding = ".tiff";
-                break;
+                return ".tiff";
             case RGB888:
-                imageEncoding = ".rgb888";
-                break;
+                return ".rgb888";
             case BGR888:
-                imageEncoding = ".bgr888";
-                break;
+                return ".bgr888";
             default:
                 throw new RuntimeException("invalid image format specified by processor: " + imageFormat);
         }
-        File tempFile = File.createTempFile("testImage", imageEncoding, new File(imagesDirPath.toString()));
-        tempFile.deleteOnExit();
-        FileOutputStream outputStream = new FileOutputStream(tempFile);
-        outputStream.write(bytes);
+    }
+
+    public static File createTempImageFileForProcessor(
+            Path imagesDirPath, byte[] bytes, PluginTypes.ImageFormat imageFormat) throws IOException {
+        File tempFile = File.createTempFile(
+                "testImage", imageExtension(imageFormat), new File(imagesDirPath.toString()));
+        try (FileOutputStream outputStream = new FileOutputStream(tempFile)) {
+            outputStream.write(bytes);
+        }
         return tempFile;
     }
 
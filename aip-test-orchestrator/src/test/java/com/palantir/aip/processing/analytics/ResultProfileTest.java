@@ -0,0 +1,121 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.analytics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class ResultProfileTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void doesNotDriftFromTheSameDistribution() {
+        ResultProfile golden = profile(1000, 2, 0.8, "car");
+        ResultProfile run = profile(250, 2, 0.8, "car");
+
+        assertThat(run.driftFrom(golden).exceeds(0)).isFalse();
+        assertThat(golden.driftFrom(golden).exceeds(0)).isFalse();
+    }
+
+    @Test
+    void driftsWhenTheDetectionCountChanges() {
+        ResultProfile golden = profile(100, 2, 0.8, "car");
+        ResultProfile run = profile(100, 3, 0.8, "car");
+
+        assertThat(run.driftFrom(golden).exceeds(0.99)).isTrue();
+        assertThat(run.driftFrom(golden).toString()).contains("mean +1.00");
+    }
+
+    @Test
+    void driftsWhenTheConfidenceShifts() {
+        ResultProfile golden = new ResultProfile();
+        ResultProfile run = new ResultProfile();
+        for (int frame = 0; frame < 100; frame++) {
+            golden.recordFrame(1);
+            golden.recordDetection(frame < 50 ? 0.25 : 0.75, "car");
+            run.recordFrame(1);
+            run.recordDetection(0.75, "car");
+        }
+
+        // Half of the detections moved from the lower bin to the upper one.
+        ResultDrift drift = run.driftFrom(golden);
+        assertThat(drift.exceeds(0.49)).isTrue();
+        assertThat(drift.exceeds(0.51)).isFalse();
+    }
+
+    @Test
+    void driftsWhenTheClassesChange() {
+        ResultProfile golden = profile(100, 1, 0.8, "car");
+        ResultProfile run = new ResultProfile();
+        for (int frame = 0; frame < 100; frame++) {
+            run.recordFrame(1);
+            run.recordDetection(0.8, frame % 4 == 0 ? "truck" : "car");
+        }
+
+        ResultDrift drift = run.driftFrom(golden);
+        assertThat(drift.exceeds(0.24)).isTrue();
+        assertThat(drift.exceeds(0.26)).isFalse();
+    }
+
+    @Test
+    void treatsAnEmptyRunAsCompleteDrift() {
+        ResultProfile golden = profile(100, 1, 0.8, "car");
+
+        assertThat(new ResultProfile().driftFrom(golden).exceeds(0.99)).isTrue();
+        assertThat(new ResultProfile().driftFrom(new ResultProfile()).exceeds(0)).isFalse();
+    }
+
+    @Test
+    void ignoresUnscoredDetectionsInTheConfidenceDistribution() {
+        ResultProfile golden = profile(100, 1, 0.8, "car");
+        ResultProfile run = profile(100, 1, 0.8, "car");
+        run.recordFrame(1);
+        run.recordDetection(Double.NaN, "car");
+
+        assertThat(run.driftFrom(golden).exceeds(0.05)).isFalse();
+        assertThat(run.summary()).contains("1 detections without a score");
+    }
+
+    @Test
+    void roundTripsThroughAGoldenProfileFile() {
+        Path path = dir.resolve("golden.profile");
+        ResultProfile golden = profile(100, 3, 0.6, "person");
+        golden.writeTo(path);
+
+        ResultProfile read = ResultProfile.readFrom(path);
+        assertThat(read.frames()).isEqualTo(100L);
+        assertThat(read.summary()).isEqualTo(golden.summary());
+        assertThat(golden.driftFrom(read).exceeds(0)).isFalse();
+    }
+
+    @Test
+    void rejectsFilesThatAreNotResultProfiles() throws IOException {
+        Path path = dir.resolve("golden.profile");
+        Files.write(path, "not a result profile".getBytes(StandardCharsets.US_ASCII));
+
+        assertThatThrownBy(() -> ResultProfile.readFrom(path))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("is not a result profile");
+    }
+
+    private static ResultProfile profile(int frames, int detectionsPerFrame, double confidence, String label) {
+        ResultProfile profile = new ResultProfile();
+        for (int frame = 0; frame < frames; frame++) {
+            profile.recordFrame(detectionsPerFrame);
+            for (int detection = 0; detection < detectionsPerFrame; detection++) {
+                profile.recordDetection(confidence, label);
+            }
+        }
+        return profile;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.control;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+final class AdaptiveRateControllerTest {
+    private static final long TARGET_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void convergesBelowTheRateTheProcessorCanSustain() {
+        AdaptiveRateController controller = new AdaptiveRateController(10, 99, TARGET_NANOS, INTERVAL_NANOS);
+        double rate = run(controller, 10, 500);
+
+        assertThat(controller.isConverged()).isTrue();
+        assertThat(controller.isUnattainable()).isFalse();
+        assertThat(controller.sustainableFramesPerSecond()).isBetween(400.0, 500.0);
+        assertThat(rate).isLessThan(500.0);
+    }
+
+    @Test
+    void ignoresMissesBeforeAnyRateMetTheTarget() {
+        AdaptiveRateController controller = new AdaptiveRateController(100, 99, TARGET_NANOS, INTERVAL_NANOS);
+        run(controller, 100, 50);
+
+        assertThat(controller.isConverged()).isTrue();
+        assertThat(controller.isUnattainable()).isFalse();
+        // Counting the initial misses as back-offs from a rate of zero would drag the average below 40.
+        assertThat(controller.sustainableFramesPerSecond()).isBetween(40.0, 50.0);
+    }
+
+    @Test
+    void givesUpWhenTheTargetIsNeverMet() {
+        AdaptiveRateController controller = new AdaptiveRateController(100, 99, TARGET_NANOS, INTERVAL_NANOS);
+        run(controller, 100, 0);
+
+        assertThat(controller.isConverged()).isTrue();
+        assertThat(controller.isUnattainable()).isTrue();
+        assertThat(controller.sustainableFramesPerSecond()).isEqualTo(0.0);
+    }
+
+    /**
+     * Drives the controller against a processor that answers within the target up to {@code capacity} frames per
+     * second and misses it above, until the search ends. Returns the last rate the controller chose.
+     */
+    private static double run(AdaptiveRateController controller, double initialRate, double capacity) {
+        double rate = initialRate;
+        // The first interval is discarded.
+        controller.control();
+        for (int interval = 0; interval < 1000 && !controller.isConverged(); interval++) {
+            long frames = Math.round(rate);
+            long latencyNanos = rate <= capacity ? TARGET_NANOS / 2 : TARGET_NANOS * 2;
+            for (long frame = 0; frame < frames; frame++) {
+                controller.onSent(null, 0);
+                controller.onResponse(null, null, latencyNanos);
+            }
+            controller.control();
+            rate = controller.framesPerSecond();
+        }
+        return rate;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+final class InFlightLimiterTest {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void admitsUpToTheCapWithoutWaiting() throws Exception {
+        InFlightLimiter limiter = new InFlightLimiter(2);
+        limiter.acquire(0);
+        limiter.acquire(0);
+
+        Future<?> third = executor.submit(() -> acquire(limiter, 0));
+        awaitWaiting(1);
+        assertThat(third.isDone()).isFalse();
+
+        limiter.release();
+        third.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void admitsHigherPriorityWaitersFirst() throws Exception {
+        InFlightLimiter limiter = new InFlightLimiter(1);
+        limiter.acquire(0);
+        List<Integer> admitted = new CopyOnWriteArrayList<>();
+
+        Future<?> low = executor.submit(() -> {
+            acquire(limiter, 0);
+            admitted.add(0);
+        });
+        awaitWaiting(1);
+        Future<?> high = executor.submit(() -> {
+            acquire(limiter, 5);
+            admitted.add(5);
+        });
+        awaitWaiting(2);
+
+        limiter.release();
+        high.get(10, TimeUnit.SECONDS);
+        assertThat(low.isDone()).isFalse();
+
+        limiter.release();
+        low.get(10, TimeUnit.SECONDS);
+        assertThat(admitted).containsExactly(5, 0);
+    }
+
+    @Test
+    void awaitsIdleUntilEverySlotIsReleased() throws Exception {
+        InFlightLimiter limiter = new InFlightLimiter(2);
+        limiter.acquire(0);
+        limiter.acquire(0);
+
+        Future<?> idle = executor.submit(() -> {
+            limiter.awaitIdle();
+            return null;
+        });
+        awaitWaiting(1);
+        limiter.release();
+        assertThat(isDoneWithin(idle, 100)).isFalse();
+
+        limiter.release();
+        idle.get(10, TimeUnit.SECONDS);
+    }
+
+    private static void acquire(InFlightLimiter limiter, int priority) {
+        try {
+            limiter.acquire(priority);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** Waits until {@code count} threads are blocked in a limiter. */
+    private static void awaitWaiting(int count) throws InterruptedException {
+        long deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (waitingThreads() < count) {
+            if (System.nanoTime() > deadlineNanos) {
+                throw new AssertionError("expected " + count + " waiting threads");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private static long waitingThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getState() == Thread.State.WAITING)
+                .filter(thread -> isIn(thread, InFlightLimiter.class))
+                .count();
+    }
+
+    private static boolean isIn(Thread thread, Class<?> type) {
+        for (StackTraceElement frame : thread.getStackTrace()) {
+            if (frame.getClassName().equals(type.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isDoneWithin(Future<?> future, long millis) throws InterruptedException {
+        try {
+            future.get(millis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.palantir.aip.proto.processor.v3.ProcessorV3Protos.ProcessRequest;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+final class LiveStreamGateTest {
+    private final List<Request> dropped = new ArrayList<>();
+
+    @Test
+    void sendsFramesWhileBelowTheCap() {
+        LiveStreamGate gate = new LiveStreamGate(2, FrameDropPolicy.DROP_NEWEST, 1, dropped::add);
+        Request first = frame(0);
+        Request second = frame(1);
+
+        assertThat(gate.offer(first)).isSameAs(first);
+        assertThat(gate.offer(second)).isSameAs(second);
+        assertThat(dropped).isEmpty();
+    }
+
+    @Test
+    void dropNewestDropsFramesCapturedAtTheCap() {
+        LiveStreamGate gate = new LiveStreamGate(1, FrameDropPolicy.DROP_NEWEST, 1, dropped::add);
+        Request sent = frame(0);
+        Request late = frame(1);
+        Request next = frame(2);
+
+        assertThat(gate.offer(sent)).isSameAs(sent);
+        assertThat(gate.offer(late)).isNull();
+        assertThat(gate.complete()).isNull();
+        assertThat(gate.offer(next)).isSameAs(next);
+        assertThat(dropped).containsExactly(late);
+    }
+
+    @Test
+    void replaceWithLatestHoldsOnlyTheNewestFrame() {
+        LiveStreamGate gate = new LiveStreamGate(1, FrameDropPolicy.REPLACE_WITH_LATEST, 1, dropped::add);
+        Request sent = frame(0);
+        Request replaced = frame(1);
+        Request latest = frame(2);
+
+        assertThat(gate.offer(sent)).isSameAs(sent);
+        assertThat(gate.offer(replaced)).isNull();
+        assertThat(gate.offer(latest)).isNull();
+        assertThat(dropped).containsExactly(replaced);
+
+        // The held frame takes over the slot of the completed one.
+        assertThat(gate.complete()).isSameAs(latest);
+        assertThat(gate.complete()).isNull();
+        Request afterwards = frame(3);
+        assertThat(gate.offer(afterwards)).isSameAs(afterwards);
+    }
+
+    @Test
+    void dropsTheHeldFrameOnClose() {
+        LiveStreamGate gate = new LiveStreamGate(1, FrameDropPolicy.REPLACE_WITH_LATEST, 1, dropped::add);
+        Request held = frame(1);
+        gate.offer(frame(0));
+        gate.offer(held);
+
+        gate.close();
+        assertThat(dropped).containsExactly(held);
+        assertThat(gate.complete()).isNull();
+    }
+
+    @Test
+    void skipToKeyframeDropsEveryFrameUntilTheNextKeyframe() {
+        LiveStreamGate gate = new LiveStreamGate(1, FrameDropPolicy.SKIP_TO_KEYFRAME, 3, dropped::add);
+        Request keyframe = frame(0);
+        Request late = frame(1);
+        Request skipped = frame(2);
+        Request nextKeyframe = frame(3);
+
+        assertThat(gate.offer(keyframe)).isSameAs(keyframe);
+        assertThat(gate.offer(late)).isNull();
+        assertThat(gate.complete()).isNull();
+        // There is room again, but the stream cannot resume before a keyframe.
+        assertThat(gate.offer(skipped)).isNull();
+        assertThat(gate.offer(nextKeyframe)).isSameAs(nextKeyframe);
+        assertThat(dropped).containsExactly(late, skipped);
+    }
+
+    private static Request frame(long id) {
+        return new Request(id, 0, RequestKind.VIDEO, ProcessRequest.newBuilder().setRequestId(id).build());
+    }
+}
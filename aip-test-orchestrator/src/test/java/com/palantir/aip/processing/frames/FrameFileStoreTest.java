@@ -0,0 +1,148 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.frames;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.palantir.aip.processing.engine.Request;
+import com.palantir.aip.processing.engine.RequestKind;
+import com.palantir.aip.processing.util.ProcessorUtils;
+import com.palantir.aip.proto.processor.v3.ProcessorV3Protos.ProcessRequest;
+import com.palantir.aip.proto.types.PluginTypes;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class FrameFileStoreTest {
+    private static final PluginTypes.ImageFormat FORMAT = PluginTypes.ImageFormat.BGR888;
+    private static final long FRAME_BYTES = ProcessorUtils.encodeTestImage(FORMAT).length;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void fitsAWholeNumberOfFramesInTheQuota() {
+        FrameFileStore store = new FrameFileStore(dir, FORMAT, 3 * FRAME_BYTES + 1, 1);
+        store.close();
+
+        assertThat(store.quotaFrames()).isEqualTo(3);
+        assertThatThrownBy(() -> new FrameFileStore(dir, FORMAT, FRAME_BYTES - 1, 1))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("smaller than a single");
+    }
+
+    @Test
+    void neverHoldsMoreFramesThanTheQuota() throws Exception {
+        try (FrameFileStore store = new FrameFileStore(dir, FORMAT, 2 * FRAME_BYTES, 2)) {
+            Path first = get(store.write());
+            get(store.write());
+
+            assertThat(store.tryWrite().isPresent()).isFalse();
+            assertThat(frameFiles()).isEqualTo(2L);
+            assertThat(Files.size(first)).isEqualTo(FRAME_BYTES);
+        }
+    }
+
+    @Test
+    void blocksWritersUntilAFrameIsReleased() throws Exception {
+        try (FrameFileStore store = new FrameFileStore(dir, FORMAT, FRAME_BYTES, 1)) {
+            Request request = request(1);
+            store.track(request, get(store.write()));
+
+            Future<Path> blocked = executor.submit(() -> get(store.write()));
+            assertThat(isDoneWithin(blocked, 100)).isFalse();
+
+            store.onResponse(request, null, 0);
+            Path next = blocked.get(10, TimeUnit.SECONDS);
+            assertThat(Files.exists(next)).isTrue();
+            assertThat(frameFiles()).isEqualTo(1L);
+        }
+    }
+
+    @Test
+    void releasesTheFramesOfDroppedAndFailedRequests() throws Exception {
+        try (FrameFileStore store = new FrameFileStore(dir, FORMAT, 2 * FRAME_BYTES, 1)) {
+            Request dropped = request(1);
+            Request failed = request(2);
+            store.track(dropped, get(store.write()));
+            store.track(failed, get(store.write()));
+
+            store.onDropped(dropped);
+            store.onFailure(failed, new RuntimeException("failed"), 0);
+            get(store.write());
+            get(store.write());
+        }
+    }
+
+    @Test
+    void deletesDiscardedFrames() throws Exception {
+        try (FrameFileStore store = new FrameFileStore(dir, FORMAT, FRAME_BYTES, 1)) {
+            ListenableFuture<Path> frame = store.write();
+            store.discard(frame);
+
+            get(store.write());
+            assertThat(Files.exists(get(frame))).isFalse();
+        }
+    }
+
+    @Test
+    void deletesEveryRemainingFrameOnClose() throws Exception {
+        FrameFileStore store = new FrameFileStore(dir, FORMAT, 3 * FRAME_BYTES, 2);
+        store.track(request(1), get(store.write()));
+        // Writes still queued when the store closes are finished first, then deleted with the rest.
+        ListenableFuture<Path> queued = store.write();
+        ListenableFuture<Path> tried = store.tryWrite().get();
+
+        store.close();
+        assertThat(frameFiles()).isEqualTo(0L);
+        assertThat(Files.exists(get(queued))).isFalse();
+        assertThat(Files.exists(get(tried))).isFalse();
+    }
+
+    private long frameFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+
+    private static Path get(ListenableFuture<Path> frame)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        return frame.get(10, TimeUnit.SECONDS);
+    }
+
+    private static Request request(long id) {
+        return new Request(id, 0, RequestKind.VIDEO, ProcessRequest.newBuilder().setRequestId(id).build());
+    }
+
+    private static boolean isDoneWithin(Future<?> future, long millis) throws InterruptedException {
+        try {
+            future.get(millis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.replay;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.palantir.aip.proto.processor.v3.ProcessorV3Protos.ProcessRequest;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class RequestLogTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsRequestsWithTheirSendOffsets() throws InvalidProtocolBufferException {
+        Path log = dir.resolve("requests.log");
+        try (RequestLogWriter writer = new RequestLogWriter(log)) {
+            long startNanos = System.nanoTime();
+            for (long id = 1; id <= 3; id++) {
+                writer.append(RecordType.V3_PROCESS_REQUEST, startNanos + id * 1_000_000, request(id));
+            }
+            assertThat(writer.frames()).isEqualTo(3L);
+        }
+
+        try (RequestLogReader reader = new RequestLogReader(log)) {
+            long previousOffsetNanos = -1;
+            for (long id = 1; id <= 3; id++) {
+                RecordedRequest recorded = reader.next().get();
+                assertThat(recorded.type()).isEqualTo(RecordType.V3_PROCESS_REQUEST);
+                // The payload is only valid until the reader advances.
+                assertThat(ProcessRequest.parser().parseFrom(recorded.payload()).getRequestId())
+                        .isEqualTo(id);
+                if (previousOffsetNanos >= 0) {
+                    assertThat(recorded.offsetNanos() - previousOffsetNanos).isEqualTo(1_000_000L);
+                }
+                previousOffsetNanos = recorded.offsetNanos();
+            }
+            assertThat(reader.next()).isEmpty();
+        }
+    }
+
+    @Test
+    void clampsRequestsAppendedOutOfSendOrder() {
+        Path log = dir.resolve("requests.log");
+        try (RequestLogWriter writer = new RequestLogWriter(log)) {
+            long startNanos = System.nanoTime();
+            writer.append(RecordType.V3_PROCESS_REQUEST, startNanos + 2_000_000, request(1));
+            writer.append(RecordType.V3_PROCESS_REQUEST, startNanos + 1_000_000, request(2));
+        }
+
+        List<RecordedRequest> recorded = readAll(log);
+        assertThat(recorded.get(1).offsetNanos()).isEqualTo(recorded.get(0).offsetNanos());
+    }
+
+    @Test
+    void endsCleanlyAfterTheLastCompleteFrameOfACutOffLog() throws IOException {
+        Path log = dir.resolve("requests.log");
+        try (RequestLogWriter writer = new RequestLogWriter(log)) {
+            long startNanos = System.nanoTime();
+            writer.append(RecordType.V3_PROCESS_REQUEST, startNanos, request(1));
+            writer.append(RecordType.V3_PROCESS_REQUEST, startNanos + 1_000_000, request(2));
+        }
+        byte[] complete = Files.readAllBytes(log);
+
+        Path cut = dir.resolve("cut.log");
+        int previousFrames = 0;
+        for (int length = 0; length < complete.length; length++) {
+            Files.write(cut, Arrays.copyOf(complete, length));
+            int frames = readAll(cut).size();
+            assertThat(frames).isBetween(previousFrames, 1);
+            previousFrames = frames;
+        }
+        assertThat(previousFrames).isEqualTo(1);
+    }
+
+    @Test
+    void readsALogCutOffInItsHeaderAsEmpty() throws IOException {
+        Path log = dir.resolve("requests.log");
+        Files.write(log, Arrays.copyOf(RequestLogFormat.MAGIC, 2));
+
+        try (RequestLogReader reader = new RequestLogReader(log)) {
+            assertThat(reader.next()).isEmpty();
+        }
+    }
+
+    @Test
+    void rejectsFilesThatAreNotRequestLogs() throws IOException {
+        Path log = dir.resolve("requests.log");
+        Files.write(log, "not a request log".getBytes(StandardCharsets.US_ASCII));
+
+        assertThatThrownBy(() -> new RequestLogReader(log))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Not a request log");
+    }
+
+    @Test
+    void rejectsLogsOfAnotherVersion() throws IOException {
+        Path log = dir.resolve("requests.log");
+        byte[] header = Arrays.copyOf(RequestLogFormat.MAGIC, RequestLogFormat.FILE_HEADER_BYTES);
+        header[RequestLogFormat.MAGIC.length] = RequestLogFormat.VERSION + 1;
+        Files.write(log, header);
+
+        assertThatThrownBy(() -> new RequestLogReader(log))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Unsupported request log version 2");
+    }
+
+    private static ProcessRequest request(long id) {
+        return ProcessRequest.newBuilder().setRequestId(id).build();
+    }
+
+    private static List<RecordedRequest> readAll(Path log) {
+        List<RecordedRequest> recorded = new ArrayList<>();
+        try (RequestLogReader reader = new RequestLogReader(log)) {
+            for (Optional<RecordedRequest> next = reader.next(); next.isPresent(); next = reader.next()) {
+                recorded.add(next.get());
+            }
+        }
+        return recorded;
+    }
+}
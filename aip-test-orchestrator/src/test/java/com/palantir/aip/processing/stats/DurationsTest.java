@@ -0,0 +1,62 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.stats;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+final class DurationsTest {
+    @Test
+    void parsesEachUnit() {
+        assertThat(Durations.parseNanos("250us")).isEqualTo(TimeUnit.MICROSECONDS.toNanos(250));
+        assertThat(Durations.parseNanos("250ms")).isEqualTo(TimeUnit.MILLISECONDS.toNanos(250));
+        assertThat(Durations.parseNanos("30s")).isEqualTo(TimeUnit.SECONDS.toNanos(30));
+        assertThat(Durations.parseNanos("2m")).isEqualTo(TimeUnit.MINUTES.toNanos(2));
+        assertThat(Durations.parseNanos("1h")).isEqualTo(TimeUnit.HOURS.toNanos(1));
+    }
+
+    @Test
+    void parsesFractionsOfSecondsMinutesAndHours() {
+        assertThat(Durations.parseNanos("1.5s")).isEqualTo(TimeUnit.MILLISECONDS.toNanos(1500));
+        assertThat(Durations.parseNanos("0.5m")).isEqualTo(TimeUnit.SECONDS.toNanos(30));
+        assertThat(Durations.parseNanos("0.25h")).isEqualTo(TimeUnit.MINUTES.toNanos(15));
+    }
+
+    @Test
+    void ignoresCaseAndSurroundingWhitespace() {
+        assertThat(Durations.parseNanos(" 10MS ")).isEqualTo(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+
+    @Test
+    void acceptsZeroWithoutAUnit() {
+        assertThat(Durations.parseNanos("0")).isEqualTo(0L);
+    }
+
+    @Test
+    void rejectsValuesWithoutAUnit() {
+        assertThatThrownBy(() -> Durations.parseNanos("30"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("expected a unit");
+    }
+
+    @Test
+    void rejectsMalformedValues() {
+        assertThatThrownBy(() -> Durations.parseNanos("1.5ms"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("invalid duration");
+        assertThatThrownBy(() -> Durations.parseNanos("s"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("invalid duration");
+    }
+
+    @Test
+    void formatsMillisecondsBelowASecondAndSecondsAbove() {
+        assertThat(Durations.format(TimeUnit.MICROSECONDS.toNanos(1500))).isEqualTo("1.500 ms");
+        assertThat(Durations.format(TimeUnit.MILLISECONDS.toNanos(2500))).isEqualTo("2.500 s");
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.stats;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+final class LatencyHistogramTest {
+    @Test
+    void countsValuesBelowTheLinearLimitExactly() {
+        for (long value = 0; value < 128; value++) {
+            assertThat(LatencyHistogram.bucket(value)).isEqualTo((int) value);
+            assertThat(LatencyHistogram.representative((int) value)).isEqualTo(value);
+        }
+    }
+
+    @Test
+    void startsANewBucketAtEveryPowerOfTwo() {
+        for (int exponent = 7; exponent < 63; exponent++) {
+            long powerOfTwo = 1L << exponent;
+            assertThat(LatencyHistogram.bucket(powerOfTwo))
+                    .isEqualTo(LatencyHistogram.bucket(powerOfTwo - 1) + 1);
+        }
+        // 64 sub-buckets per power of two, so [128, 256) is split into buckets two wide.
+        assertThat(LatencyHistogram.bucket(128)).isEqualTo(128);
+        assertThat(LatencyHistogram.bucket(129)).isEqualTo(128);
+        assertThat(LatencyHistogram.bucket(130)).isEqualTo(129);
+        assertThat(LatencyHistogram.bucket(255)).isEqualTo(191);
+    }
+
+    @Test
+    void representsEveryValueWithinOnePercent() {
+        for (long value = 128; value < Long.MAX_VALUE / 3; value = value * 3 + 1) {
+            for (long nearby = value - 1; nearby <= value + 1; nearby++) {
+                long representative = LatencyHistogram.representative(LatencyHistogram.bucket(nearby));
+                assertThat(Math.abs(representative - nearby) / (double) nearby).isLessThan(0.01);
+            }
+        }
+    }
+
+    @Test
+    void reportsPercentilesAndCountsAtBucketBoundaries() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+
+        assertThat(histogram.percentileNanos(50)).isEqualTo(50L);
+        assertThat(histogram.percentileNanos(99)).isEqualTo(99L);
+        assertThat(histogram.percentileNanos(100)).isEqualTo(100L);
+        assertThat(histogram.countAbove(90)).isEqualTo(10L);
+        assertThat(histogram.countAbove(100)).isEqualTo(0L);
+    }
+
+    @Test
+    void neverReportsAPercentileAboveTheMaximum() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000_001);
+
+        assertThat(histogram.percentileNanos(50)).isEqualTo(1_000_001L);
+        assertThat(histogram.maxNanos()).isEqualTo(1_000_001L);
+    }
+
+    @Test
+    void recordsNegativeLatenciesAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+
+        assertThat(histogram.count()).isEqualTo(1L);
+        assertThat(histogram.percentileNanos(100)).isEqualTo(0L);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.stats;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+final class SteadyStateDetectorTest {
+    private static final long INTERVAL_NANOS = 1_000;
+
+    @Test
+    void becomesSteadyAtTheFirstOfThreeSimilarIntervals() {
+        SteadyStateDetector detector = new SteadyStateDetector(INTERVAL_NANOS);
+        long[] meanLatencies = {500, 200, 100, 105, 95};
+        for (int interval = 0; interval < meanLatencies.length; interval++) {
+            detector.record(interval * INTERVAL_NANOS, meanLatencies[interval]);
+            assertThat(detector.steadyAtNanos()).isEqualTo(-1L);
+        }
+
+        // The interval after the third similar one completes it.
+        detector.record(meanLatencies.length * INTERVAL_NANOS, 100);
+        assertThat(detector.steadyAtNanos()).isEqualTo(2 * INTERVAL_NANOS);
+    }
+
+    @Test
+    void skipsEmptyIntervals() {
+        SteadyStateDetector detector = new SteadyStateDetector(INTERVAL_NANOS);
+        detector.record(0, 100);
+        detector.record(3 * INTERVAL_NANOS, 100);
+        detector.record(7 * INTERVAL_NANOS, 100);
+        assertThat(detector.steadyAtNanos()).isEqualTo(-1L);
+
+        detector.record(8 * INTERVAL_NANOS, 100);
+        assertThat(detector.steadyAtNanos()).isEqualTo(0L);
+    }
+
+    @Test
+    void neverBecomesSteadyWhileLatencyKeepsGrowing() {
+        SteadyStateDetector detector = new SteadyStateDetector(INTERVAL_NANOS);
+        for (int interval = 0; interval < 20; interval++) {
+            detector.record(interval * INTERVAL_NANOS, 100L << interval);
+        }
+        assertThat(detector.steadyAtNanos()).isEqualTo(-1L);
+    }
+
+    @Test
+    void recordsFromSeveralThreads() throws Exception {
+        SteadyStateDetector detector = new SteadyStateDetector(INTERVAL_NANOS);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> threads = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                threads.add(executor.submit(() -> {
+                    for (long nanos = 0; nanos < 10 * INTERVAL_NANOS; nanos++) {
+                        detector.record(nanos, 100);
+                    }
+                }));
+            }
+            for (Future<?> thread : threads) {
+                thread.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(detector.steadyAtNanos()).isBetween(0L, 7 * INTERVAL_NANOS);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * (c) Copyright 2021 Palantir Technologies Inc. All rights reserved.
+ */
+
+package com.palantir.aip.processing.stats;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+final class WarmupTest {
+    @Test
+    void parsesADurationAsATimedWarmup() {
+        Warmup warmup = Warmup.parse("30s");
+
+        assertThat(warmup.nanos()).isEqualTo(TimeUnit.SECONDS.toNanos(30));
+        assertThat(warmup.includes(TimeUnit.SECONDS.toNanos(29), 1_000_000)).isTrue();
+        assertThat(warmup.includes(TimeUnit.SECONDS.toNanos(30), 0)).isFalse();
+    }
+
+    @Test
+    void parsesAFrameCount() {
+        Warmup warmup = Warmup.parse("1000F");
+
+        assertThat(warmup.nanos()).isEqualTo(0L);
+        assertThat(warmup.includes(TimeUnit.HOURS.toNanos(1), 999)).isTrue();
+        assertThat(warmup.includes(0, 1000)).isFalse();
+        assertThat(warmup).hasToString("1000 frames");
+    }
+
+    @Test
+    void parsesZeroAsNoWarmup() {
+        Warmup warmup = Warmup.parse("0");
+
+        assertThat(warmup.includes(0, 0)).isFalse();
+        assertThat(warmup).hasToString("none");
+    }
+
+    @Test
+    void rejectsMalformedFrameCounts() {
+        assertThatThrownBy(() -> Warmup.parse("manyf"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("invalid warm-up frame count");
+    }
+
+    @Test
+    void roundTripsThroughItsWireFormat() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Warmup.ofFrames(42).writeTo(new DataOutputStream(bytes));
+
+        Warmup read = Warmup.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertThat(read).hasToString("42 frames");
+    }
+}